@@ -0,0 +1,67 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sieving throughput of the PrimeAlgorithm beans across bounds, segment sizes and pool sizes.
+ *
+ * Beans are created by scanning the algorithm package, exactly as the application does, so a new bean
+ * only needs its name added to {@link #algorithm} (or passed with {@code -p algorithm=<name>}).
+ * Parallel algorithms run on the {@link SievePool}, sized to {@link #threads} workers through
+ * {@code primes.executor.parallelism}. The segmented sieve's incremental mode is switched off, or every
+ * invocation after the first would be a prefix view of the first. {@code indexed} is left out for the
+ * same reason: it keeps what it sieved, so it is measured as a warm lookup by {@link PrimeIndexLookupBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PrimeAlgorithmBenchmark {
+
+    @Param({"simple", "segmented", "wheel", "linear", "atkin"})
+    public String algorithm;
+
+    @Param({"1000", "1000000", "100000000", "1000000000"})
+    public int max;
+
+    @Param({"1000000", "32768"})
+    public int segmentSize;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private AnnotationConfigApplicationContext context;
+    private PrimeAlgorithm algo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "primes.segment-size", segmentSize,
+                "primes.max-allowed", max,
+                "primes.executor.parallelism", threads,
+                "primes.segmented.retain-bytes", 0))); // measure sieving, not the retained prefix
+        context.scan(PrimeAlgorithm.class.getPackageName());
+        context.refresh();
+
+        algo = context.getBean(algorithm, PrimeAlgorithm.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void computeArrayUpTo(Blackhole bh) {
+        bh.consume(algo.computeArrayUpTo(max));
+    }
+}
@@ -0,0 +1,56 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warm lookups on the {@code indexed} algorithm: the index is grown to {@link #max} once per trial, so every
+ * measured call is a binary search plus a prefix view, not a sieve. This is what repeated bounds cost in the
+ * application; compare sieving costs with {@link PrimeAlgorithmBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class PrimeIndexLookupBenchmark {
+
+    @Param({"1000", "1000000", "100000000", "1000000000"})
+    public int max;
+
+    private AnnotationConfigApplicationContext context;
+    private PrimeAlgorithm index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "primes.max-allowed", max)));
+        context.scan(PrimeAlgorithm.class.getPackageName());
+        context.refresh();
+
+        index = context.getBean("indexed", PrimeAlgorithm.class);
+        index.computeArrayUpTo(max); // grow once; everything measured below is a lookup
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void warmLookup(Blackhole bh) {
+        bh.consume(index.computeArrayUpTo(max));
+    }
+
+    @Benchmark
+    public void warmLookupHalf(Blackhole bh) {
+        bh.consume(index.computeArrayUpTo(max / 2));
+    }
+}
@@ -0,0 +1,66 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.WheelSieveAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a PrimeResponse into JSON and XML bytes, with the same Jackson setup Spring MVC uses
+ * and with the hand-written {@link PrimeResponseWriter} that now serves these bodies.
+ * Output goes to a null stream, so the numbers (and the GC profiler's allocation rate) cover
+ * serialization only, not buffering the body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class PrimeResponseSerializationBenchmark {
+
+    @Param({"1000", "1000000", "10000000"})
+    public int max;
+
+    // the sink is reused across invocations, so the mapper must not close it
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).build();
+    private final ObjectMapper xml = Jackson2ObjectMapperBuilder.xml()
+            .featuresToDisable(JsonGenerator.Feature.AUTO_CLOSE_TARGET).build();
+    private final OutputStream sink = OutputStream.nullOutputStream();
+
+    private PrimeResponse response;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PrimeArray primes = new WheelSieveAlgorithm().computeArrayUpTo(max);
+        response = new PrimeResponse(max, primes.size(), primes, Instant.now(), 0);
+    }
+
+    @Benchmark
+    public void json() throws IOException {
+        json.writeValue(sink, response);
+    }
+
+    @Benchmark
+    public void xml() throws IOException {
+        xml.writeValue(sink, response);
+    }
+
+    @Benchmark
+    public void writerJson() throws IOException {
+        PrimeResponseWriter.writeJson(response, sink);
+    }
+
+    @Benchmark
+    public void writerXml() throws IOException {
+        PrimeResponseWriter.writeXml(response, sink);
+    }
+}
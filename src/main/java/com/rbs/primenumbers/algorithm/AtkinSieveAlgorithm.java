@@ -0,0 +1,160 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Segmented Sieve of Atkin over odd-only bitmaps of {@code primes.segment-cache-bytes}.
+ *
+ * An odd n >= 5 is prime iff it is squarefree and has an odd number of solutions of the quadratic
+ * form for its residue mod 12: 4x² + y² (n ≡ 1, 5), 3x² + y² (n ≡ 7) or 3x² − y² with x > y (n ≡ 11).
+ * Each segment toggles one bit per solution that lands in it, strikes out multiples of p² for every
+ * prime p with p² in range, and what is left is prime.
+ *
+ * Asymptotically O(n / log log n); in practice the per-segment enumeration of x (O(sqrt n) each) and
+ * the modulo test per (x, y) make it slower than a wheel or segmented Eratosthenes. It is here so the
+ * choice per workload rests on measurements ({@code PrimeAlgorithmBenchmark}), not folklore.
+ */
+@Slf4j
+@Component("atkin") // bean name used for selection
+public class AtkinSieveAlgorithm implements PrimeAlgorithm {
+
+    private static final int DEFAULT_BLOCK_BYTES = 32 * 1024;
+
+    @Value("${primes.segment-cache-bytes:" + DEFAULT_BLOCK_BYTES + "}")
+    private int blockBytes;
+
+    @Override
+    public String name() { return "atkin"; }
+
+    @Override
+    public long workingBytes(long max) {
+        return Math.min(max / 16, bitsPerSegment() / 8);
+    }
+
+    @Override
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
+
+        long t0 = System.nanoTime();
+        int[] primes = new int[PrimeArray.maxPrimeCount(max)];
+        int n = 0;
+        primes[n++] = 2;
+        if (max >= 3) primes[n++] = 3;
+
+        // each segment covers the integers [low, high), low even, one bit per odd number
+        long span = 2L * bitsPerSegment();
+        long[] bits = new long[(int) (bitsPerSegment() >>> 6)];
+        for (long low = 0; low <= max; low += span) {
+            long high = Math.min(low + span, (long) max + 1);
+            Arrays.fill(bits, 0L);
+            toggleSolutions(bits, low, high);
+            n = strikeSquares(bits, low, high, primes, n);
+        }
+        ComputePhases.record(ComputePhases.SIEVE, t0);
+        return PrimeArray.of(primes, n);
+    }
+
+    /** Toggles the bit of every n in [low, high) once per solution of the form matching n mod 12. */
+    private static void toggleSolutions(long[] bits, long low, long high) {
+        // 4x² + y², n ≡ 1 or 5 (mod 12): n ≡ 1 (mod 4) forces y odd
+        for (long x = 1, xx4 = 4; xx4 + 1 < high; x++, xx4 = 4 * x * x) {
+            for (long y = firstY(low - xx4, 1); ; y += 2) {
+                long n = xx4 + y * y;
+                if (n >= high) break;
+                int r = (int) (n % 12);
+                if (r == 1 || r == 5) toggle(bits, n - low);
+            }
+        }
+        // 3x² + y², n ≡ 7 (mod 12): x odd, y even
+        for (long x = 1, xx3 = 3; xx3 + 4 < high; x += 2, xx3 = 3 * x * x) {
+            for (long y = Math.max(2, firstY(low - xx3, 0)); ; y += 2) {
+                long n = xx3 + y * y;
+                if (n >= high) break;
+                if (n % 12 == 7) toggle(bits, n - low);
+            }
+        }
+        // 3x² − y² with x > y >= 1, n ≡ 11 (mod 12): x and y of opposite parity; y descends as n ascends
+        for (long x = 2; 2 * x * x + 2 * x - 1 < high; x++) {
+            long xx3 = 3 * x * x;
+            long yTop = xx3 - low;                        // n >= low  <=>  y² <= 3x² - low
+            long y = Math.min(x - 1, yTop < 1 ? 0 : isqrt(yTop));
+            if ((x + y) % 2 == 0) y--;
+            for (; y >= 1; y -= 2) {
+                long n = xx3 - y * y;
+                if (n >= high) break;
+                if (n % 12 == 11) toggle(bits, n - low);
+            }
+        }
+    }
+
+    /**
+     * Removes multiples of p² (p >= 5 prime) from the segment, then appends its remaining bits to primes.
+     * Primes below the segment come from the result so far; those inside it are taken in ascending order,
+     * each after all smaller squares are gone, so a bit still set is prime.
+     */
+    private static int strikeSquares(long[] bits, long low, long high, int[] primes, int n) {
+        for (int i = 0; i < n; i++) {
+            long p = primes[i];
+            if (p < 5) continue;
+            if (p * p >= high) break;
+            strike(bits, low, high, p * p);
+        }
+
+        long count = (high - low) >>> 1;
+        for (int w = 0; w < bits.length && ((long) w << 6) < count; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                long index = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (index >= count) break;
+                long p = low + 2 * index + 1;
+                if (p < 5 || (bits[w] & (1L << index)) == 0) continue;
+                primes[n++] = (int) p;
+                if (p * p < high) {
+                    strike(bits, low, high, p * p);
+                    word &= bits[w]; // this word may have lost later bits
+                }
+            }
+        }
+        return n;
+    }
+
+    /** Clears the odd multiples of square in [low, high). */
+    private static void strike(long[] bits, long low, long high, long square) {
+        long m = Math.max(square, (low + square - 1) / square * square);
+        if ((m & 1) == 0) m += square;
+        for (long step = 2 * square; m < high; m += step) {
+            long index = (m - low) >>> 1;
+            bits[(int) (index >>> 6)] &= ~(1L << index);
+        }
+    }
+
+    private static void toggle(long[] bits, long offset) {
+        long index = offset >>> 1;
+        bits[(int) (index >>> 6)] ^= 1L << index;
+    }
+
+    /** Smallest y >= 1 with y² >= need and y ≡ parity (mod 2). */
+    private static long firstY(long need, int parity) {
+        long y = need <= 1 ? 1 : isqrt(need - 1) + 1;
+        if ((y & 1) != parity) y++;
+        return y;
+    }
+
+    private static long isqrt(long v) {
+        long r = (long) Math.sqrt((double) v);
+        while (r * r > v) r--;
+        while ((r + 1) * (r + 1) <= v) r++;
+        return r;
+    }
+
+    /** Odd numbers per segment, a multiple of 64. */
+    private long bitsPerSegment() {
+        int bytes = blockBytes > 0 ? blockBytes : DEFAULT_BLOCK_BYTES;
+        return Math.max(64, 8L * bytes & ~63L);
+    }
+}
@@ -0,0 +1,58 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-thread collector of how long each phase of a computation took (base sieve, sieving, assembly, ...).
+ *
+ * Algorithms call {@link #record(String, long)} from the thread that called them; it is a no-op unless
+ * a caller opened a {@link Recording}. Durations of the same phase are summed, in first-seen order.
+ */
+public final class ComputePhases {
+
+    public static final String BASE_SIEVE = "base";
+    public static final String SIEVE = "sieve";
+    public static final String ASSEMBLY = "assembly";
+
+    private static final ThreadLocal<Map<String, Long>> CURRENT = new ThreadLocal<>();
+
+    private ComputePhases() {}
+
+    /** Adds the time since {@code startNanos} (from {@link System#nanoTime()}) to the phase. */
+    public static void record(String phase, long startNanos) {
+        Map<String, Long> phases = CURRENT.get();
+        if (phases != null) phases.merge(phase, System.nanoTime() - startNanos, Long::sum);
+    }
+
+    /** Opens a recording on this thread; opening again while one is active joins the outer recording. */
+    public static Recording open() {
+        Map<String, Long> phases = CURRENT.get();
+        if (phases != null) return new Recording(phases, false);
+
+        phases = new LinkedHashMap<>();
+        CURRENT.set(phases);
+        return new Recording(phases, true);
+    }
+
+    public static final class Recording implements AutoCloseable {
+        private final Map<String, Long> phases;
+        private final boolean owner;
+
+        private Recording(Map<String, Long> phases, boolean owner) {
+            this.phases = phases;
+            this.owner = owner;
+        }
+
+        /** Phase name -> nanoseconds, in the order phases were first recorded. */
+        public Map<String, Long> phases() {
+            return Collections.unmodifiableMap(phases);
+        }
+
+        @Override
+        public void close() {
+            if (owner) CURRENT.remove();
+        }
+    }
+}
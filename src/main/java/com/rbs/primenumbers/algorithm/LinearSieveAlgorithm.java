@@ -0,0 +1,75 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Linear (Euler) sieve: every composite is crossed off exactly once, by its smallest prime factor,
+ * so the work is O(n) instead of O(n log log n).
+ *
+ * The price is memory: it fills a smallest-prime-factor table, one int per integer, which is also
+ * available on its own ({@link #smallestPrimeFactors(int)}) for factorizing every number up to max.
+ * That makes it a small-bound engine; above {@link #MAX_TABLE} it refuses rather than allocate gigabytes.
+ */
+@Slf4j
+@Component("linear") // bean name used for selection
+public class LinearSieveAlgorithm implements PrimeAlgorithm {
+
+    /** Largest max with a table (1 GiB of ints); use a bitmap sieve beyond it. */
+    static final int MAX_TABLE = 1 << 28;
+
+    @Override
+    public String name() { return "linear"; }
+
+    @Override
+    public long workingBytes(long max) {
+        return Integer.BYTES * (max + 1);
+    }
+
+    @Override
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
+
+        requireTable(max);
+        long t0 = System.nanoTime();
+        int[] primes = new int[PrimeArray.maxPrimeCount(max)];
+        int n = sieve(max, new int[max + 1], primes);
+        ComputePhases.record(ComputePhases.SIEVE, t0);
+        return PrimeArray.of(primes, n);
+    }
+
+    /**
+     * Smallest prime factor of every integer in [0, max] (entries 0 and 1 are 0): n factors as
+     * spf[n] * spf[n / spf[n]] * ... in O(number of factors).
+     */
+    public int[] smallestPrimeFactors(int max) {
+        requireTable(max);
+        int[] spf = new int[Math.max(2, max + 1)];
+        if (max >= 2) sieve(max, spf, new int[PrimeArray.maxPrimeCount(max)]);
+        return spf;
+    }
+
+    /** Fills spf and the ascending primes <= max; returns the number of primes. */
+    private static int sieve(int max, int[] spf, int[] primes) {
+        int n = 0;
+        for (int i = 2; i <= max; i++) {
+            if (spf[i] == 0) {
+                spf[i] = i;
+                primes[n++] = i;
+            }
+            // i * p for every prime p up to spf(i): each composite is reached once, from its largest proper divisor
+            int bound = Math.min(spf[i], max / i);
+            for (int j = 0; j < n && primes[j] <= bound; j++) {
+                spf[i * primes[j]] = primes[j];
+            }
+        }
+        return n;
+    }
+
+    private static void requireTable(int max) {
+        if (max > MAX_TABLE) {
+            throw new IllegalArgumentException("Algorithm 'linear' keeps a factor table per integer and is limited to max ≤ "
+                    + MAX_TABLE + "; use 'segmented' for larger bounds");
+        }
+    }
+}
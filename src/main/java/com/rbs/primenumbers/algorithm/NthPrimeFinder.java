@@ -0,0 +1,87 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * The n-th prime (1-based: the first prime is 2) by estimate-then-sieve, without building a prime list.
+ *
+ * <ol>
+ *   <li>Bracket p_n between explicit bounds: Rosser–Schoenfeld, tightened by Dusart's (2010) terms where
+ *       they hold, so the bracket is about n / (2 ln n) wide instead of n.</li>
+ *   <li>Count the primes below the bracket with {@link PrimeCounter} in O(x^(3/4)).</li>
+ *   <li>Popcount the bracket segment by segment, in parallel, and sieve only the segment the
+ *       running total says holds p_n.</li>
+ * </ol>
+ * Memory stays at the base primes (sqrt(p_n)) plus one segment. Positions the segmented sieve's count
+ * index already reaches are answered from the index instead.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NthPrimeFinder {
+
+    private static final long[] FIRST_PRIMES = {2, 3, 5, 7, 11};
+
+    /** Dusart's upper bound is proven from here on. */
+    private static final long DUSART_UPPER_FROM = 688_383;
+
+    private final SegmentedParallelSieveAlgorithm segmented;
+
+    private final PrimeCounter counter;
+
+    /** The n-th prime, n >= 1. */
+    public long nth(long n) {
+        if (n < 1) throw new IllegalArgumentException("n must be ≥ 1");
+        if (n <= FIRST_PRIMES.length) return FIRST_PRIMES[(int) n - 1];
+        if (segmented.isIndexed(n - 1)) return segmented.primesByIndex(n - 1, 1)[0];
+
+        long low = lowerBound(n);
+        long high = upperBound(n);
+
+        long t0 = System.nanoTime();
+        long before = counter.countUpTo(low - 1);
+        ComputePhases.record(ComputePhases.BASE_SIEVE, t0);
+
+        long span = SegmentCountIndex.SEGMENT_SPAN;
+        long[] counts = segmented.countSpans(low, high, span);
+        log.debug("p_{} bracketed in [{}, {}]: {} primes below, {} spans", n, low, high, before, counts.length);
+
+        for (int k = 0; k < counts.length; k++) {
+            if (before + counts[k] >= n) {
+                long spanLow = low + k * span;
+                long t1 = System.nanoTime();
+                long[] primes = segmented.computeRange(spanLow, Math.min(high, spanLow + span - 1));
+                ComputePhases.record(ComputePhases.ASSEMBLY, t1);
+                return primes[(int) (n - before - 1)];
+            }
+            before += counts[k];
+        }
+        throw new IllegalStateException("p_" + n + " not found in [" + low + ", " + high + "]");
+    }
+
+    /** p_n >= n(ln n + ln ln n - 1 + (ln ln n - 2.1) / ln n), Dusart (2010), for n >= 3. */
+    public static long lowerBound(long n) {
+        if (n <= FIRST_PRIMES.length) return n < 1 ? 2 : FIRST_PRIMES[(int) n - 1];
+        double ln = Math.log(n);
+        double lnln = Math.log(ln);
+        // Rosser–Schoenfeld's n(ln n + ln ln n - 1) is weaker everywhere Dusart's term is positive
+        double bound = n * (ln + lnln - 1 + Math.max(0, (lnln - 2.1) / ln));
+        return Math.max(2, (long) Math.floor(bound) - 1);
+    }
+
+    /**
+     * p_n <= n(ln n + ln ln n) for n >= 6 (Rosser–Schoenfeld), and
+     * p_n <= n(ln n + ln ln n - 1 + (ln ln n - 2) / ln n) for n >= 688,383 (Dusart, 2010).
+     */
+    public static long upperBound(long n) {
+        if (n <= FIRST_PRIMES.length) return n < 1 ? 2 : FIRST_PRIMES[(int) n - 1];
+        double ln = Math.log(n);
+        double lnln = Math.log(ln);
+        double bound = n >= DUSART_UPPER_FROM
+                ? n * (ln + lnln - 1 + (lnln - 2) / ln)
+                : n * (ln + lnln);
+        return (long) Math.ceil(bound) + 1;
+    }
+}
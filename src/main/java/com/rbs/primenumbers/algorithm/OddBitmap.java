@@ -0,0 +1,38 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.nio.LongBuffer;
+
+/**
+ * Odd-only sieve bitmap of the primes <= max: bit i (word {@code i >>> 6}, bit {@code i & 63}) is set
+ * when 2i+1 is prime. The only even prime, 2, is implied by max >= 2.
+ *
+ * {@code words} is read with absolute gets; it may be a heap array or a memory-mapped file, and may be
+ * shared with a larger sieve and carry bits above max, so readers must stop at {@link #bitLength()}.
+ * Must be treated as read-only.
+ */
+public record OddBitmap(int max, int count, LongBuffer words) {
+
+    /** Builds the bitmap from an ascending prime array, for algorithms that don't keep one. */
+    public static OddBitmap of(PrimeArray primes, int max) {
+        PrimeArray upTo = primes.upTo(max);
+        long[] words = new long[(int) ((bitLength(max) + 63) >>> 6)];
+        int[] values = upTo.backingArray();
+        for (int i = upTo.offset(), end = i + upTo.size(); i < end; i++) {
+            int p = values[i];
+            if ((p & 1) != 0) {
+                int bit = p >>> 1;
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new OddBitmap(max, upTo.size(), LongBuffer.wrap(words));
+    }
+
+    /** Number of meaningful bits: one per odd number in [1, max]. */
+    public long bitLength() {
+        return bitLength(max);
+    }
+
+    private static long bitLength(int max) {
+        return max < 1 ? 0 : ((long) max + 1) >>> 1;
+    }
+}
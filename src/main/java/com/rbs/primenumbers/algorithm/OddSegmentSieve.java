@@ -0,0 +1,308 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Cache-blocked, odd-only sieve of one contiguous chunk [low, high], run by a single worker.
+ *
+ * The chunk is walked in blocks of {@code blockBytes} (sized for L1/L2), one bit per odd number.
+ * Base primes are split by how often they hit a block:
+ * <ul>
+ *   <li>small primes (step below the block size) keep their next-multiple offset in an array that is
+ *       carried from block to block, so no division happens after the chunk's first block;</li>
+ *   <li>large primes hit a block at most once, so they sit in per-block buckets (Oliveira e Silva):
+ *       a block only touches the primes that actually land in it, then re-files them further ahead.</li>
+ * </ul>
+ * All working arrays live in a per-thread {@link Worker} and are reused, so sieving allocates nothing
+ * beyond its output: an exactly sized prime array, the chunk's bitmap ({@link Bits}) when the caller
+ * wants to size the combined result first, or just a count or {@link PrimeStats} aggregate.
+ */
+final class OddSegmentSieve {
+
+    private final int blockBits;
+    private final ThreadLocal<Worker> workers;
+
+    OddSegmentSieve(int blockBytes) {
+        int words = Math.max(1, blockBytes / Long.BYTES);
+        this.blockBits = words * 64;
+        this.workers = ThreadLocal.withInitial(() -> new Worker(words));
+    }
+
+    /** Integers covered by one block. */
+    long blockSpan() {
+        return 2L * blockBits;
+    }
+
+    /** Primes in [low, high] (both within int range), ascending. */
+    int[] sieveInts(int low, int high, int[] basePrimes) {
+        Worker w = workers.get();
+        try {
+            sieve(w, low, high, basePrimes);
+            return Arrays.copyOf(w.ints, w.count);
+        } finally {
+            w.trim();
+        }
+    }
+
+    /**
+     * A sieved chunk kept as its odd-only bitmap (bit i set: firstOdd + 2i is prime) plus its prime count,
+     * so results can be sized before a single prime is written out.
+     */
+    record Bits(boolean two, long firstOdd, long[] words, int count) {
+
+        /** Writes the primes, ascending, into out starting at pos. */
+        void writeInts(int[] out, int pos) {
+            if (two) out[pos++] = 2;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    out[pos++] = (int) (firstOdd + 2L * ((i << 6) + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        /** 64-bit variant of {@link #writeInts}. */
+        void writeLongs(long[] out, int pos) {
+            if (two) out[pos++] = 2;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    out[pos++] = firstOdd + 2L * ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
+    /** Sieves [low, high] into a bitmap and popcounts it; nothing is listed yet. */
+    Bits sieveBits(long low, long high, int[] basePrimes) {
+        long firstOdd = Math.max(3, Math.max(2, low) | 1);
+        long oddCount = high >= firstOdd ? (high - firstOdd) / 2 + 1 : 0;
+        Worker w = workers.get();
+        w.bitsOut = new long[(int) ((oddCount + 63) >>> 6)];
+        try {
+            sieve(w, low, high, basePrimes);
+            boolean two = low <= 2 && high >= 2;
+            return new Bits(two, firstOdd, w.bitsOut, w.count);
+        } finally {
+            w.bitsOut = null;
+            w.trim();
+        }
+    }
+
+    /** Number of primes in [low, high]; popcounts the blocks instead of listing them. */
+    long count(long low, long high, int[] basePrimes) {
+        Worker w = workers.get();
+        w.countOnly = true;
+        try {
+            sieve(w, low, high, basePrimes);
+            return w.count;
+        } finally {
+            w.countOnly = false;
+            w.trim();
+        }
+    }
+
+    /** Aggregates over the primes in [low, high], fed block by block from the bitmap; nothing is listed. */
+    PrimeStats stats(long low, long high, int[] basePrimes, PrimeStats into) {
+        Worker w = workers.get();
+        w.stats = into;
+        try {
+            sieve(w, low, high, basePrimes);
+            return into;
+        } finally {
+            w.stats = null;
+            w.trim();
+        }
+    }
+
+    /** Scratch the calling thread's worker keeps between calls. */
+    long retainedScratchBytes() {
+        return workers.get().scratchBytes();
+    }
+
+    // --- engine ---
+
+    /** Per-thread scratch space, grown on demand and cut back after every call that outgrew it. */
+    private static final class Worker {
+        private static final int RETAINED_OUTPUT = 1 << 20;
+        /** Bucket entries kept between calls: base primes up to ~1.7M, i.e. windows up to ~3 * 10^12. */
+        private static final int RETAINED_ENTRIES = 1 << 17;
+        private static final int RETAINED_BLOCKS = 1 << 12;
+
+        final long[] block;
+        boolean countOnly;
+        PrimeStats stats;  // set while aggregating instead of listing
+        long[] bitsOut;    // set while sieving into a chunk bitmap
+        int bitsWordBase;  // first word of the current block in bitsOut
+        int count;
+        int[] ints = new int[1024];
+
+        // small primes: prime and next offset (bit index relative to the current block)
+        int[] smallPrimes = new int[64];
+        long[] smallNext = new long[64];
+
+        // large primes: one entry each, chained into the bucket of the block their next multiple falls in
+        int[] bucketHead = new int[16];
+        int[] entryPrime = new int[64];
+        int[] entryOffset = new int[64];  // bit index inside the target block
+        int[] entryNext = new int[64];
+
+        Worker(int words) {
+            this.block = new long[words];
+        }
+
+        /**
+         * Don't pin the scratch of one huge chunk to a pool thread forever: its output, or the buckets for
+         * millions of base primes (12 bytes each) that a window near 10^16 files.
+         */
+        void trim() {
+            if (ints.length > RETAINED_OUTPUT) ints = new int[RETAINED_OUTPUT];
+            if (smallPrimes.length > RETAINED_ENTRIES) {
+                smallPrimes = new int[RETAINED_ENTRIES];
+                smallNext = new long[RETAINED_ENTRIES];
+            }
+            if (entryPrime.length > RETAINED_ENTRIES) {
+                entryPrime = new int[RETAINED_ENTRIES];
+                entryOffset = new int[RETAINED_ENTRIES];
+                entryNext = new int[RETAINED_ENTRIES];
+            }
+            if (bucketHead.length > RETAINED_BLOCKS) bucketHead = new int[RETAINED_BLOCKS];
+        }
+
+        long scratchBytes() {
+            return Integer.BYTES * ((long) ints.length + smallPrimes.length + bucketHead.length
+                    + 3L * entryPrime.length) + Long.BYTES * (long) smallNext.length;
+        }
+    }
+
+    private void sieve(Worker w, long low, long high, int[] basePrimes) {
+        w.count = 0;
+        long start = Math.max(2, low);
+        if (high < start) return;
+        if (start == 2) append(w, 2);
+
+        long firstOdd = Math.max(3, start | 1);
+        if (firstOdd > high) return;
+        long oddCount = (high - firstOdd) / 2 + 1;
+        int blocks = (int) ((oddCount + blockBits - 1) / blockBits);
+
+        int smalls = prepare(w, firstOdd, high, oddCount, blocks, basePrimes);
+
+        long[] bits = w.block;
+        for (int b = 0; b < blocks; b++) {
+            int limit = (int) Math.min(blockBits, oddCount - (long) b * blockBits);
+            Arrays.fill(bits, 0, (limit + 63) >>> 6, 0L);
+
+            // small primes: several hits per block, offsets carried into the next block
+            int[] sp = w.smallPrimes;
+            long[] next = w.smallNext;
+            for (int i = 0; i < smalls; i++) {
+                int p = sp[i];
+                long j = next[i];
+                for (; j < limit; j += p) bits[(int) (j >>> 6)] |= 1L << j;
+                next[i] = j - blockBits;
+            }
+
+            // large primes: only those filed under this block, then re-filed ahead
+            for (int e = w.bucketHead[b]; e >= 0; ) {
+                int following = w.entryNext[e];
+                int off = w.entryOffset[e];
+                if (off < limit) bits[off >>> 6] |= 1L << off;
+                long target = (long) b * blockBits + off + w.entryPrime[e];
+                int targetBlock = (int) (target / blockBits);
+                if (targetBlock < blocks) {
+                    w.entryOffset[e] = (int) (target - (long) targetBlock * blockBits);
+                    w.entryNext[e] = w.bucketHead[targetBlock];
+                    w.bucketHead[targetBlock] = e;
+                }
+                e = following;
+            }
+
+            w.bitsWordBase = b * (blockBits >>> 6);
+            collect(w, bits, limit, firstOdd + 2L * b * blockBits);
+        }
+    }
+
+    /**
+     * Computes each base prime's first odd multiple in the chunk (never below p^2) once, files small
+     * primes into the carried-offset arrays and large ones into buckets. Returns the number of small primes.
+     */
+    private int prepare(Worker w, long firstOdd, long high, long oddCount, int blocks, int[] basePrimes) {
+        if (w.bucketHead.length < blocks) w.bucketHead = new int[Math.max(blocks, w.bucketHead.length * 2)];
+        Arrays.fill(w.bucketHead, 0, blocks, -1);
+
+        int smalls = 0;
+        int entries = 0;
+        for (int p : basePrimes) {
+            if (p == 2) continue;
+            long p2 = (long) p * p;
+            if (p2 > high) break;
+
+            long m = Math.max(p2, firstOdd + Math.floorMod(-firstOdd, (long) p));
+            if ((m & 1) == 0) m += p; // odd multiples only
+            long offset = (m - firstOdd) >>> 1;
+            if (offset >= oddCount) continue;
+
+            if (p < blockBits) {
+                if (smalls == w.smallPrimes.length) {
+                    w.smallPrimes = Arrays.copyOf(w.smallPrimes, smalls * 2);
+                    w.smallNext = Arrays.copyOf(w.smallNext, smalls * 2);
+                }
+                w.smallPrimes[smalls] = p;
+                w.smallNext[smalls] = offset;
+                smalls++;
+            } else {
+                if (entries == w.entryPrime.length) {
+                    w.entryPrime = Arrays.copyOf(w.entryPrime, entries * 2);
+                    w.entryOffset = Arrays.copyOf(w.entryOffset, entries * 2);
+                    w.entryNext = Arrays.copyOf(w.entryNext, entries * 2);
+                }
+                int targetBlock = (int) (offset / blockBits);
+                w.entryPrime[entries] = p;
+                w.entryOffset[entries] = (int) (offset - (long) targetBlock * blockBits);
+                w.entryNext[entries] = w.bucketHead[targetBlock];
+                w.bucketHead[targetBlock] = entries;
+                entries++;
+            }
+        }
+
+        return smalls;
+    }
+
+    /** Appends every clear bit below limit as the odd number it stands for. */
+    private static void collect(Worker w, long[] bits, int limit, long blockStart) {
+        int words = (limit + 63) >>> 6;
+        for (int i = 0; i < words; i++) {
+            long word = ~bits[i];
+            if (i == words - 1 && (limit & 63) != 0) word &= (1L << limit) - 1;
+            if (w.countOnly || w.bitsOut != null) {
+                if (w.bitsOut != null) w.bitsOut[w.bitsWordBase + i] = word;
+                w.count += Long.bitCount(word);
+                continue;
+            }
+            if (w.stats != null) {
+                for (long base = blockStart + ((long) i << 7); word != 0; word &= word - 1) {
+                    w.stats.accept(base + 2L * Long.numberOfTrailingZeros(word));
+                }
+                continue;
+            }
+            while (word != 0) {
+                append(w, blockStart + 2L * ((i << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+    }
+
+    private static void append(Worker w, long prime) {
+        if (w.stats != null) {
+            w.stats.accept(prime); // only ever 2
+        } else if (w.countOnly || w.bitsOut != null) {
+            w.count++; // only ever 2, which isn't in the odd-only bits
+        } else {
+            if (w.count == w.ints.length) w.ints = Arrays.copyOf(w.ints, w.count * 2);
+            w.ints[w.count++] = (int) prime;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.IntStream;
+
+/**
+ * Primality tests for arbitrary 64-bit values.
+ *
+ * Values the shared {@link PrimeIndex} already covers are a single bit lookup. Everything else goes
+ * through Miller–Rabin with the 7 witnesses known to be deterministic for all n < 2^64, using
+ * Montgomery multiplication on top of {@link Math#unsignedMultiplyHigh} (no BigInteger, no division).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PrimalityTester {
+
+    /** Jim Sinclair's witness set: deterministic for every n < 2^64. */
+    private static final long[] WITNESSES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+    private static final int[] SMALL_PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37};
+
+    /** Below this, fork/join overhead outweighs the work. */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private final PrimeIndex index;
+
+    private final SievePool sievePool;
+
+    public boolean isPrime(long n) {
+        if (n < 2) return false;
+        if (index.covers(n)) return index.isPrime((int) n);
+        return millerRabin(n);
+    }
+
+    /** One result per value, evaluated in parallel for larger batches. */
+    public boolean[] testAll(long[] values) {
+        boolean[] results = new boolean[values.length];
+        if (values.length >= PARALLEL_THRESHOLD) {
+            sievePool.invoke(() -> IntStream.range(0, values.length).parallel().forEach(i -> results[i] = isPrime(values[i])));
+        } else {
+            for (int i = 0; i < values.length; i++) results[i] = isPrime(values[i]);
+        }
+        return results;
+    }
+
+    // --- Miller–Rabin ---
+
+    static boolean millerRabin(long n) {
+        if (n < 2) return false;
+        for (int p : SMALL_PRIMES) {
+            if (n % p == 0) return n == p;
+        }
+
+        Montgomery m = new Montgomery(n);
+        long nMinus1 = n - 1;
+        int s = Long.numberOfTrailingZeros(nMinus1);
+        long d = nMinus1 >>> s;
+        long one = m.one;
+        long minusOne = n - one;
+
+        for (long a : WITNESSES) {
+            long base = a % n;
+            if (base == 0) continue;
+
+            long x = m.pow(m.toMontgomery(base), d);
+            if (x == one || x == minusOne) continue;
+
+            boolean composite = true;
+            for (int r = 1; r < s; r++) {
+                x = m.multiply(x, x);
+                if (x == minusOne) { composite = false; break; }
+            }
+            if (composite) return false;
+        }
+        return true;
+    }
+
+    /** Montgomery arithmetic modulo an odd n < 2^63, with R = 2^64. */
+    private static final class Montgomery {
+        private final long n;
+        private final long nInverse; // n^-1 mod 2^64
+        private final long one;      // R mod n
+        private final long r2;       // R^2 mod n
+
+        Montgomery(long n) {
+            this.n = n;
+            long inv = n; // correct to 3 bits for odd n; each Newton step doubles that
+            for (int i = 0; i < 5; i++) inv *= 2 - n * inv;
+            this.nInverse = inv;
+            this.one = Long.remainderUnsigned(-n, n); // 2^64 mod n
+            long r = one;
+            for (int i = 0; i < 64; i++) r = addMod(r, r); // R * 2^64 mod n
+            this.r2 = r;
+        }
+
+        long toMontgomery(long a) {
+            return multiply(a, r2);
+        }
+
+        /** a * b * R^-1 mod n, for a, b < n. */
+        long multiply(long a, long b) {
+            long lo = a * b;
+            long hi = Math.unsignedMultiplyHigh(a, b);
+            long mHi = Math.unsignedMultiplyHigh(lo * nInverse, n);
+            long t = hi - mHi; // low halves cancel exactly
+            return Long.compareUnsigned(hi, mHi) < 0 ? t + n : t;
+        }
+
+        long pow(long base, long exponent) {
+            long result = one;
+            while (exponent != 0) {
+                if ((exponent & 1) != 0) result = multiply(result, base);
+                base = multiply(base, base);
+                exponent >>>= 1;
+            }
+            return result;
+        }
+
+        private long addMod(long a, long b) {
+            long sum = a + b; // a, b < n < 2^63, so no unsigned overflow
+            return Long.compareUnsigned(sum, n) >= 0 ? sum - n : sum;
+        }
+    }
+}
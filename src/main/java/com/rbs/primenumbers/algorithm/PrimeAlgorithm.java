@@ -4,10 +4,80 @@ import java.util.List;
 
 /** Strategy interface for prime-number algorithms. */
 public interface PrimeAlgorithm {
+    /**
+     * Compute all primes <= max as an ascending primitive array (4 bytes per prime).
+     */
+    PrimeArray computeArrayUpTo(int max);
+
     /**
      * Compute all primes <= max.
+     * Boxed view over {@link #computeArrayUpTo(int)}; prefer the primitive variant on hot paths.
+     */
+    default List<Integer> computeUpTo(int max) {
+        return computeArrayUpTo(max).asList();
+    }
+
+    /**
+     * Compute the primes <= max as an odd-only bitmap (see {@link OddBitmap}).
+     * The default builds it from {@link #computeArrayUpTo(int)}; sieves that already hold one return it directly.
+     */
+    default OddBitmap computeOddBitmapUpTo(int max) {
+        return OddBitmap.of(computeArrayUpTo(max), max);
+    }
+
+    /**
+     * Compute all primes in [from, to], with 64-bit bounds.
+     * The default sieves everything up to {@code to} and slices, so it only works below 2^31; algorithms
+     * that can sieve just the window override this together with {@link #sievesWindowOnly()}.
+     */
+    default long[] computeRange(long from, long to) {
+        if (to > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Algorithm '" + name() + "' cannot sieve beyond "
+                    + Integer.MAX_VALUE + "; use a window-capable algorithm such as 'segmented'");
+        }
+        if (to < Math.max(2, from)) return new long[0];
+        return computeArrayUpTo((int) to).between((int) Math.max(0, from), (int) to).toLongArray();
+    }
+
+    /**
+     * True when {@link #computeRange(long, long)} costs O(window + sqrt(to)) rather than O(to),
+     * so range requests can be bounded by window width instead of by max-allowed.
+     */
+    default boolean sievesWindowOnly() {
+        return false;
+    }
+
+    /**
+     * Working memory, besides the result, of {@link #computeArrayUpTo(int)} for this max; used for admission.
+     * The default is one bit per integer, as for a plain bitmap sieve.
+     */
+    default long workingBytes(long max) {
+        return max / 8;
+    }
+
+    /**
+     * Integers {@link #computeArrayUpTo(int)} still has to sieve for this max; used for admission.
+     * Less than max for algorithms that extend earlier results instead of starting again at 2.
+     */
+    default long numbersToSieve(long max) {
+        return max;
+    }
+
+    /**
+     * True when the work runs on the {@link SievePool}, so its latency depends on how busy the pool is.
+     * Used by the adaptive ("auto") algorithm selection.
+     */
+    default boolean parallel() {
+        return false;
+    }
+
+    /**
+     * True when {@link #computeArrayUpTo(int)} would answer from already-computed state without sieving.
+     * Only reported as the cache hit/miss dimension of the compute metrics.
      */
-    List<Integer> computeUpTo(int max);
+    default boolean isCached(int max) {
+        return false;
+    }
 
     /**
      * Machine-friendly name used for selection (e.g., "simple", "segmented").
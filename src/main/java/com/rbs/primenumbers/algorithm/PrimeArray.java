@@ -0,0 +1,150 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only, ascending sequence of primes backed by a primitive int[].
+ *
+ * Costs 4 bytes per prime instead of a boxed Integer per element, and
+ * slices (prefixes, sub-ranges) share the backing array instead of copying it.
+ */
+public final class PrimeArray {
+
+    private static final PrimeArray EMPTY = new PrimeArray(new int[0], 0, 0);
+
+    private final int[] values;
+    private final int from;   // inclusive index into values
+    private final int to;     // exclusive index into values
+
+    private PrimeArray(int[] values, int from, int to) {
+        this.values = values;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static PrimeArray empty() { return EMPTY; }
+
+    /**
+     * Array length that holds every prime <= max, for sieves that fill one before they know the count:
+     * pi(x) < 1.25506 x / ln x for x > 1 (Rosser–Schoenfeld).
+     */
+    static int maxPrimeCount(int max) {
+        return (int) (1.25506 * max / Math.log(Math.max(max, 2))) + 2;
+    }
+
+    /** Wraps (does not copy) an ascending array; the caller must not modify it afterwards. */
+    public static PrimeArray of(int... values) {
+        return of(values, values.length);
+    }
+
+    /** Wraps the first {@code length} entries of an ascending array without copying. */
+    public static PrimeArray of(int[] values, int length) {
+        if (length < 0 || length > values.length) {
+            throw new IndexOutOfBoundsException("length " + length + " outside [0, " + values.length + "]");
+        }
+        return length == 0 ? EMPTY : new PrimeArray(values, 0, length);
+    }
+
+    public int size() { return to - from; }
+
+    public boolean isEmpty() { return to == from; }
+
+    public int get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index " + index + " outside [0, " + size() + ")");
+        }
+        return values[from + index];
+    }
+
+    /** View of the elements at positions [fromIndex, toIndex). */
+    public PrimeArray slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("slice [" + fromIndex + ", " + toIndex + ") outside [0, " + size() + ")");
+        }
+        if (fromIndex == toIndex) return EMPTY;
+        if (fromIndex == 0 && toIndex == size()) return this;
+        return new PrimeArray(values, from + fromIndex, from + toIndex);
+    }
+
+    /** View of the first {@code length} elements. */
+    public PrimeArray prefix(int length) {
+        return slice(0, length);
+    }
+
+    /** Number of elements <= value (binary search). */
+    public int countUpTo(int value) {
+        int pos = Arrays.binarySearch(values, from, to, value);
+        return (pos >= 0 ? pos + 1 : -pos - 1) - from;
+    }
+
+    /** View of the elements <= max. */
+    public PrimeArray upTo(int max) {
+        return prefix(countUpTo(max));
+    }
+
+    /** View of the elements in [from, to] (both inclusive). */
+    public PrimeArray between(int from, int to) {
+        int lo = from <= 0 ? 0 : countUpTo(from - 1);
+        int hi = countUpTo(to);
+        return lo >= hi ? EMPTY : slice(lo, hi);
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /** Copy widened to long[], for APIs that work in 64-bit space. */
+    public long[] toLongArray() {
+        long[] out = new long[size()];
+        for (int i = 0; i < out.length; i++) out[i] = values[from + i];
+        return out;
+    }
+
+    public IntStream stream() {
+        return Arrays.stream(values, from, to);
+    }
+
+    /** Boxed, read-only List view; elements are boxed on access, nothing is copied. */
+    public List<Integer> asList() {
+        return new ListView();
+    }
+
+    /**
+     * Direct access for serializers: the backing array together with {@link #offset()} and {@link #size()}.
+     * Must be treated as read-only.
+     */
+    public int[] backingArray() { return values; }
+
+    public int offset() { return from; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PrimeArray other)) return false;
+        return Arrays.equals(values, from, to, other.values, other.from, other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 1;
+        for (int i = from; i < to; i++) h = 31 * h + values[i];
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private final class ListView extends AbstractList<Integer> implements RandomAccess {
+        @Override
+        public Integer get(int index) { return PrimeArray.this.get(index); }
+
+        @Override
+        public int size() { return PrimeArray.this.size(); }
+    }
+}
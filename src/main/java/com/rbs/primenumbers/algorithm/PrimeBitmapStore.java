@@ -0,0 +1,216 @@
+package com.rbs.primenumbers.algorithm;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped file holding the {@link PrimeIndex} odd-only bitmap, so a restart picks up where the
+ * last process stopped instead of sieving again. Disabled unless {@code primes.store.enabled=true}.
+ *
+ * The bitmap is cut into fixed segments of {@value #SEGMENT_WORDS} words (131,072 integers each).
+ * Only whole segments are committed, each with its own CRC32. Layout of {@value #FILE_NAME}:
+ * <pre>
+ *  offset   size            field
+ *       0      4            magic "PRMS"
+ *       4      4            version (1)
+ *       8      4            segment size in words
+ *      12      4            reserved
+ *      16      8            committed segments
+ *      24      4            CRC32 of bytes [0, 24)
+ *    4096  4 * MAX_SEGMENTS CRC32 per segment
+ *   69632  8 * SEGMENT_WORDS per segment: bitmap words, little-endian
+ * </pre>
+ *
+ * Appends are crash-safe: new segments are written and forced first, then their CRCs, and only then
+ * the header that makes them visible. On open, a bad header discards the file and the committed prefix
+ * is cut at the first segment whose CRC doesn't match; anything past it is truncated.
+ */
+@Slf4j
+@Component
+public class PrimeBitmapStore {
+
+    static final String FILE_NAME = "primes-v1.bin";
+
+    static final int MAGIC = ('P' << 24) | ('R' << 16) | ('M' << 8) | 'S';
+    static final int VERSION = 1;
+
+    static final int SEGMENT_WORDS = 1024;
+    static final int SEGMENT_BYTES = SEGMENT_WORDS * Long.BYTES;
+    /** Enough segments for every odd number below 2^31. */
+    static final int MAX_SEGMENTS = (1 << 24) / SEGMENT_WORDS;
+
+    private static final int HEADER_FIELDS_BYTES = 28;
+    private static final int CRC_TABLE_OFFSET = 4096;
+    static final int DATA_OFFSET = CRC_TABLE_OFFSET + 4 * MAX_SEGMENTS;
+
+    /** Mapped bitmap words; the first {@code committedWords} were read back from disk. */
+    record Mapped(LongBuffer words, long committedWords) {}
+
+    private final boolean enabled;
+    private final Path file;
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped; // whole file: header, CRC table, data
+    private long committedSegments;
+
+    public PrimeBitmapStore(@Value("${primes.store.enabled:false}") boolean enabled,
+                            @Value("${primes.store.dir:data}") Path dir) {
+        this.enabled = enabled;
+        this.file = dir.resolve(FILE_NAME);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** Opens or creates the file and maps it; the committed prefix has been checked against its CRCs. */
+    synchronized Mapped open() {
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            long committed = channel.size() >= DATA_OFFSET ? validate() : 0;
+
+            // Drop whatever a crashed run appended past the committed prefix, before anything is mapped;
+            // mapping then zero-fills it
+            channel.truncate(DATA_OFFSET + committed * SEGMENT_BYTES);
+            remap(Math.max(committed, 1) * SEGMENT_WORDS);
+            committedSegments = committed;
+            writeHeader(committed);
+            mapped.force(0, HEADER_FIELDS_BYTES);
+
+            log.info("Prime store {} opened with {} committed segments", file, committed);
+            return new Mapped(dataView(), committed * SEGMENT_WORDS);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open prime store " + file, e);
+        }
+    }
+
+    /** A view of at least {@code words} words; re-maps (never copies) when the file has to grow. */
+    synchronized LongBuffer ensureCapacity(long words) {
+        if (words > dataCapacityWords()) {
+            try {
+                remap(words);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot grow prime store " + file, e);
+            }
+        }
+        return dataView();
+    }
+
+    /** Persists every whole segment among the first {@code validWords} words that isn't committed yet. */
+    synchronized void commit(long validWords) {
+        long segments = Math.min(validWords / SEGMENT_WORDS, MAX_SEGMENTS);
+        long from = committedSegments;
+        if (segments <= from) return;
+
+        int dataStart = (int) (DATA_OFFSET + from * SEGMENT_BYTES);
+        int dataLength = (int) ((segments - from) * SEGMENT_BYTES);
+        mapped.force(dataStart, dataLength);
+
+        for (long k = from; k < segments; k++) {
+            mapped.putInt((int) (CRC_TABLE_OFFSET + 4 * k), segmentCrc(k));
+        }
+        mapped.force((int) (CRC_TABLE_OFFSET + 4 * from), (int) (4 * (segments - from)));
+
+        writeHeader(segments);
+        mapped.force(0, HEADER_FIELDS_BYTES);
+        committedSegments = segments;
+        log.debug("Prime store committed segments [{}, {})", from, segments);
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    // --- helpers ---
+
+    /**
+     * Number of leading segments that can be trusted, or 0 when the header itself is bad. Reads through the
+     * channel into heap buffers, not a mapping: the file is truncated right after, and truncating a mapped
+     * file fails on Windows and leaves SIGBUS behind on Linux.
+     */
+    private long validate() throws IOException {
+        ByteBuffer header = readFully(0, HEADER_FIELDS_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(header.slice(0, HEADER_FIELDS_BYTES - 4));
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != SEGMENT_WORDS
+                || header.getInt(HEADER_FIELDS_BYTES - 4) != (int) crc.getValue()) {
+            log.warn("Prime store {} has an unreadable header; starting from scratch", file);
+            return 0;
+        }
+
+        long stored = Math.min(header.getLong(16), Math.min(MAX_SEGMENTS, (channel.size() - DATA_OFFSET) / SEGMENT_BYTES));
+        ByteBuffer crcs = readFully(CRC_TABLE_OFFSET, (int) (4 * stored));
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_BYTES);
+        for (long k = 0; k < stored; k++) {
+            crc.reset();
+            crc.update(readFully(DATA_OFFSET + k * SEGMENT_BYTES, segment));
+            if (crcs.getInt((int) (4 * k)) != (int) crc.getValue()) {
+                log.warn("Prime store {} segment {} fails its checksum; keeping the first {}", file, k, k);
+                return k;
+            }
+        }
+        return stored;
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        return readFully(position, ByteBuffer.allocate(length));
+    }
+
+    /** Fills buf from the file at position and flips it for reading. */
+    private ByteBuffer readFully(long position, ByteBuffer buf) throws IOException {
+        buf.clear();
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) throw new EOFException("Prime store " + file + " ends early");
+        }
+        return buf.flip();
+    }
+
+    private int segmentCrc(long segment) {
+        CRC32 crc = new CRC32();
+        crc.update(mapped.slice((int) (DATA_OFFSET + segment * SEGMENT_BYTES), SEGMENT_BYTES));
+        return (int) crc.getValue();
+    }
+
+    private void writeHeader(long segments) {
+        mapped.putInt(0, MAGIC)
+                .putInt(4, VERSION)
+                .putInt(8, SEGMENT_WORDS)
+                .putInt(12, 0)
+                .putLong(16, segments);
+        CRC32 crc = new CRC32();
+        crc.update(mapped.slice(0, HEADER_FIELDS_BYTES - 4));
+        mapped.putInt(HEADER_FIELDS_BYTES - 4, (int) crc.getValue());
+    }
+
+    private void remap(long words) throws IOException {
+        long segments = Math.min(MAX_SEGMENTS, (words + SEGMENT_WORDS - 1) / SEGMENT_WORDS);
+        // Earlier mappings stay valid for readers still holding their views; they are released by GC
+        mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + segments * SEGMENT_BYTES);
+    }
+
+    private long dataCapacityWords() {
+        return (mapped.capacity() - DATA_OFFSET) / Long.BYTES;
+    }
+
+    private LongBuffer dataView() {
+        return mapped.slice(DATA_OFFSET, mapped.capacity() - DATA_OFFSET).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+}
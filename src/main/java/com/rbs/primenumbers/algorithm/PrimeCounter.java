@@ -0,0 +1,49 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sublinear prime counting, pi(x), with Lucy_Hedgehog's dynamic programme.
+ *
+ * S(v) = number of integers in [2, v] that survive sieving by all primes < p is only ever needed for
+ * the O(sqrt x) distinct values v = x / i, so two arrays of size sqrt(x) hold the whole state.
+ * Each prime p <= sqrt(x) updates S(v) -= S(v / p) - S(p - 1) for v >= p^2.
+ * O(x^(3/4)) time and O(sqrt x) memory, no prime list is built.
+ */
+@Slf4j
+@Component
+public class PrimeCounter {
+
+    /** Number of primes <= x. */
+    public long countUpTo(long x) {
+        if (x < 2) return 0;
+
+        int r = (int) SegmentedParallelSieveAlgorithm.isqrt(x);
+        long[] small = new long[r + 1]; // small[v] = S(v),     v <= r
+        long[] large = new long[r + 1]; // large[i] = S(x / i), i <= r
+        for (int v = 1; v <= r; v++) small[v] = v - 1;
+        for (int i = 1; i <= r; i++) large[i] = x / i - 1;
+
+        for (int p = 2; p <= r; p++) {
+            if (small[p] == small[p - 1]) continue; // p was crossed off: not prime
+            long sp = small[p - 1];
+            long p2 = (long) p * p;
+
+            // large values first: they read small[] entries this round hasn't touched yet
+            int iEnd = (int) Math.min(r, x / p2);
+            for (int i = 1; i <= iEnd; i++) {
+                long d = (long) i * p;
+                long sub = d <= r ? large[(int) d] : small[(int) (x / d)];
+                large[i] -= sub - sp;
+            }
+            // descending, so small[v / p] is still the previous round's value
+            for (int v = r; v >= p2; v--) {
+                small[v] -= small[v / p] - sp;
+            }
+        }
+
+        log.debug("pi({}) computed with sqrt table size {}", x, r);
+        return large[1];
+    }
+}
@@ -0,0 +1,212 @@
+package com.rbs.primenumbers.algorithm;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide, growable index of all primes up to some bound.
+ *
+ * Holds a sorted int[] of primes plus an odd-only bitmap (bit i set means 2i+1 is prime).
+ * Requests at or below the current bound are answered with a prefix view (binary search, no copy).
+ * A larger bound only sieves the missing tail (bound, max] through the segmented sieve,
+ * which also reuses its cached base primes.
+ *
+ * Reads are lock-free: they go through one volatile {@link Snapshot}. Growth is serialized by a lock
+ * and only ever writes past the published count/bound, then publishes a new snapshot.
+ *
+ * With {@link PrimeBitmapStore} enabled the bitmap lives in a memory-mapped file instead of the heap:
+ * on startup the stored bound is served straight from the mapping (only the sorted int[] is rebuilt,
+ * by a popcount scan), and every growth appends its whole segments to the file.
+ */
+@Slf4j
+@Component("indexed") // bean name used for selection
+@RequiredArgsConstructor
+public class PrimeIndex implements PrimeAlgorithm {
+
+    private final SegmentedParallelSieveAlgorithm segmented;
+
+    private final PrimeBitmapStore store;
+
+    @Value("${primes.max-allowed:1000000}")
+    private int maxAllowed;
+
+    private final ReentrantLock growLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot = new Snapshot(1, new int[0], 0, LongBuffer.wrap(new long[1]));
+
+    /**
+     * Immutable view of the index: entries [0, count) of primes and bits up to bound never change.
+     * The bits are a heap array or a mapped file; both are only read with absolute gets.
+     */
+    private record Snapshot(int bound, int[] primes, int count, LongBuffer oddPrimeBits) {}
+
+    /** Warm start from the store: everything it committed is served without sieving. */
+    @PostConstruct
+    void loadStore() {
+        if (!store.enabled()) return;
+
+        PrimeBitmapStore.Mapped stored = store.open();
+        LongBuffer bits = stored.words();
+        if (stored.committedWords() == 0) {
+            snapshot = new Snapshot(1, new int[0], 0, bits);
+            return;
+        }
+
+        int bound = (int) Math.min(Integer.MAX_VALUE, stored.committedWords() * 128 - 1);
+        int[] primes = primesFromBits(bits, (int) stored.committedWords());
+        snapshot = new Snapshot(bound, primes, primes.length, bits);
+        log.info("Prime index loaded up to {} from the store (count={})", bound, primes.length);
+    }
+
+    @Override
+    public String name() { return "indexed"; }
+
+    @Override
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
+        Snapshot s = snapshot;
+        if (max > s.bound()) s = growTo(max);
+        return PrimeArray.of(s.primes(), s.count()).upTo(max);
+    }
+
+    /** The index's own bitmap (shared, no copy); bits above max are left for the reader to ignore. */
+    @Override
+    public OddBitmap computeOddBitmapUpTo(int max) {
+        if (max < 2) return OddBitmap.of(PrimeArray.empty(), Math.max(0, max));
+        Snapshot s = snapshot;
+        if (max > s.bound()) s = growTo(max);
+        return new OddBitmap(max, PrimeArray.of(s.primes(), s.count()).countUpTo(max), s.oddPrimeBits());
+    }
+
+    /**
+     * Slice of the index when it already covers {@code to}; otherwise just the window is sieved
+     * (a far-away window says nothing about the primes in between, so it does not grow the index).
+     */
+    @Override
+    public long[] computeRange(long from, long to) {
+        Snapshot s = snapshot;
+        if (to > s.bound()) return segmented.computeRange(from, to);
+        return PrimeArray.of(s.primes(), s.count()).between((int) Math.max(0, from), (int) to).toLongArray();
+    }
+
+    @Override
+    public boolean sievesWindowOnly() { return true; }
+
+    @Override
+    public boolean parallel() { return true; }
+
+    @Override
+    public boolean isCached(int max) { return covers(max); }
+
+    @Override
+    public long numbersToSieve(long max) {
+        Snapshot s = snapshot;
+        return s.count() == 0 ? max : Math.max(0, max - s.bound());
+    }
+
+    /** Highest n for which the index currently has an answer. */
+    public int bound() {
+        return snapshot.bound();
+    }
+
+    /** True when n <= {@link #bound()}, i.e. it can be answered without sieving. */
+    public boolean covers(long n) {
+        return n <= snapshot.bound();
+    }
+
+    /** Bit lookup; only valid for n <= {@link #bound()}. */
+    public boolean isPrime(int n) {
+        Snapshot s = snapshot;
+        if (n > s.bound()) throw new IllegalArgumentException(n + " is beyond the index bound " + s.bound());
+        if (n < 2) return false;
+        if ((n & 1) == 0) return n == 2;
+        int bit = n >>> 1;
+        return (s.oddPrimeBits().get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    // --- growth ---
+
+    private Snapshot growTo(int max) {
+        growLock.lock();
+        try {
+            Snapshot s = snapshot;
+            if (max <= s.bound()) return s; // another thread got there first
+
+            // Grow geometrically (capped by max-allowed) so steadily rising bounds don't sieve tiny tails
+            int target = Math.max(max, (int) Math.min(maxAllowed, 2L * s.bound()));
+            PrimeArray tail = segmented.sieveWindow(s.bound() + 1, target);
+
+            long t0 = System.nanoTime();
+            int[] primes = s.primes();
+            int count = s.count() + tail.size();
+            if (count > primes.length) {
+                primes = Arrays.copyOf(primes, (int) Math.min(Integer.MAX_VALUE - 8, count + (count >> 1)));
+            }
+            System.arraycopy(tail.backingArray(), tail.offset(), primes, s.count(), tail.size());
+
+            LongBuffer bits = s.oddPrimeBits();
+            int words = (target >>> 7) + 1; // bit (n >>> 1) for odd n <= target
+            if (words > bits.capacity()) {
+                int capacity = Math.max(words, bits.capacity() + (bits.capacity() >> 1));
+                if (store.enabled()) {
+                    bits = store.ensureCapacity(capacity);
+                } else {
+                    long[] grownBits = new long[capacity];
+                    bits.get(0, grownBits, 0, bits.capacity());
+                    bits = LongBuffer.wrap(grownBits);
+                }
+            }
+            for (int i = 0; i < tail.size(); i++) {
+                int p = tail.get(i);
+                if ((p & 1) != 0) {
+                    int bit = p >>> 1;
+                    bits.put(bit >>> 6, bits.get(bit >>> 6) | 1L << bit);
+                }
+            }
+            if (store.enabled()) persist(target);
+
+            Snapshot grown = new Snapshot(target, primes, count, bits);
+            snapshot = grown;
+            ComputePhases.record(ComputePhases.ASSEMBLY, t0);
+            log.debug("Prime index grown from {} to {} (count={})", s.bound(), target, count);
+            return grown;
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    /** Appends the whole segments below target; failing to persist only costs the next restart. */
+    private void persist(int target) {
+        try {
+            store.commit((((long) target + 1) >>> 1) >>> 6);
+        } catch (UncheckedIOException e) {
+            log.warn("Could not persist the prime index up to {}", target, e);
+        }
+    }
+
+    /** 2 followed by every odd prime whose bit is set in the first {@code words} words. */
+    private static int[] primesFromBits(LongBuffer bits, int words) {
+        int count = 1;
+        for (int w = 0; w < words; w++) count += Long.bitCount(bits.get(w));
+
+        int[] primes = new int[count];
+        primes[0] = 2;
+        int n = 1;
+        for (int w = 0; w < words; w++) {
+            long word = bits.get(w);
+            while (word != 0) {
+                primes[n++] = (int) ((((long) w << 6) + Long.numberOfTrailingZeros(word)) * 2 + 1);
+                word &= word - 1;
+            }
+        }
+        return primes;
+    }
+}
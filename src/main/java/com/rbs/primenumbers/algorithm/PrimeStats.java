@@ -0,0 +1,120 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.math.BigInteger;
+
+/**
+ * Aggregates over an ascending run of primes, built one prime at a time by a segment worker and
+ * merged with the run that follows it, so nothing is ever listed.
+ *
+ * Everything that depends on a neighbour (twin pairs, gaps, residues tracked by gap) only needs the
+ * first and last prime of each side to merge across a segment border. The sum is kept in 128 bits.
+ */
+public final class PrimeStats {
+
+    private final int[] moduli;
+    private final long[][] residues;  // residues[m][r]: primes ≡ r (mod moduli[m])
+    private final int[] lastResidue;
+
+    private long count;
+    private long sumLow;
+    private long sumHigh;
+    private long first;
+    private long last;
+    private long twinPairs;
+    private long maxGap;
+    private long maxGapAfter;          // the prime the largest gap starts at
+
+    /** Empty aggregate, also counting primes by residue modulo each of the given moduli. */
+    public PrimeStats(int... moduli) {
+        this.moduli = moduli.clone();
+        this.residues = new long[moduli.length][];
+        this.lastResidue = new int[moduli.length];
+        for (int m = 0; m < moduli.length; m++) {
+            if (moduli[m] < 1) throw new IllegalArgumentException("modulus must be ≥ 1");
+            residues[m] = new long[moduli[m]];
+        }
+    }
+
+    /** Adds the next prime; primes must arrive in ascending order. */
+    void accept(long p) {
+        if (count == 0) {
+            first = p;
+            for (int m = 0; m < moduli.length; m++) lastResidue[m] = (int) (p % moduli[m]);
+        } else {
+            long gap = p - last;
+            if (gap == 2) twinPairs++;
+            if (gap > maxGap) {
+                maxGap = gap;
+                maxGapAfter = last;
+            }
+            // gaps are small next to any modulus in use, so stepping beats a division per prime
+            for (int m = 0; m < moduli.length; m++) {
+                long r = lastResidue[m] + gap;
+                lastResidue[m] = (int) (r < moduli[m] ? r : r % moduli[m]);
+            }
+        }
+        for (int m = 0; m < moduli.length; m++) residues[m][lastResidue[m]]++;
+        last = p;
+        count++;
+        addToSum(p, 0);
+    }
+
+    /** Appends the aggregate of the run that directly follows this one. */
+    void merge(PrimeStats next) {
+        if (next.count == 0) return;
+        if (count == 0) {
+            first = next.first;
+        } else {
+            long gap = next.first - last;
+            if (gap == 2) twinPairs++;
+            if (gap > maxGap) {
+                maxGap = gap;
+                maxGapAfter = last;
+            }
+        }
+        twinPairs += next.twinPairs;
+        if (next.maxGap > maxGap) {
+            maxGap = next.maxGap;
+            maxGapAfter = next.maxGapAfter;
+        }
+        for (int m = 0; m < moduli.length; m++) {
+            for (int r = 0; r < moduli[m]; r++) residues[m][r] += next.residues[m][r];
+        }
+        System.arraycopy(next.lastResidue, 0, lastResidue, 0, lastResidue.length);
+        last = next.last;
+        count += next.count;
+        addToSum(next.sumLow, next.sumHigh);
+    }
+
+    /** An empty aggregate over the same moduli. */
+    PrimeStats emptyCopy() {
+        return new PrimeStats(moduli);
+    }
+
+    public long count() { return count; }
+
+    public BigInteger sum() {
+        return new BigInteger(Long.toUnsignedString(sumHigh)).shiftLeft(64).add(new BigInteger(Long.toUnsignedString(sumLow)));
+    }
+
+    /** Pairs (p, p + 2) with both prime. */
+    public long twinPairs() { return twinPairs; }
+
+    /** Largest difference between consecutive primes; 0 with fewer than two primes. */
+    public long maxGap() { return maxGap; }
+
+    /** The prime the first largest gap starts at; the next prime is this plus {@link #maxGap()}. */
+    public long maxGapAfter() { return maxGapAfter; }
+
+    public int[] moduli() { return moduli.clone(); }
+
+    /** Counts by residue modulo {@code moduli()[index]}. */
+    public long[] residues(int index) { return residues[index].clone(); }
+
+    private void addToSum(long low, long high) {
+        long total = sumLow + low;
+        if (Long.compareUnsigned(total, sumLow) < 0) sumHigh++;
+        sumLow = total;
+        sumHigh += high;
+    }
+}
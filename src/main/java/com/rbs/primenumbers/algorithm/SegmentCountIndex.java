@@ -0,0 +1,92 @@
+package com.rbs.primenumbers.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Cumulative prime counts at fixed segment boundaries: entry k is the number of primes below
+ * {@code k * SEGMENT_SPAN}. Immutable; growing it returns a new index sharing nothing with the old one.
+ *
+ * With the index, "the n-th prime" is a binary search to its segment plus a sieve of that one segment,
+ * however deep n is.
+ */
+final class SegmentCountIndex {
+
+    /** Integers per indexed segment (two default cache blocks). */
+    static final int SEGMENT_SPAN = 1 << 20;
+
+    static final SegmentCountIndex EMPTY = new SegmentCountIndex(new long[]{0});
+
+    private final long[] cumulative; // segments + 1 entries, cumulative[0] = 0
+
+    private SegmentCountIndex(long[] cumulative) {
+        this.cumulative = cumulative;
+    }
+
+    /** Number of whole segments counted. */
+    int segments() {
+        return cumulative.length - 1;
+    }
+
+    /** Number of primes below {@link #bound()}. */
+    long primes() {
+        return cumulative[segments()];
+    }
+
+    /** Exclusive upper end of the counted integers. */
+    long bound() {
+        return (long) segments() * SEGMENT_SPAN;
+    }
+
+    /** Number of primes below the start of segment k. */
+    long primesBefore(int segment) {
+        return cumulative[segment];
+    }
+
+    /** Segment holding the prime with the given 0-based index; the index must be below {@link #primes()}. */
+    int segmentOf(long primeIndex) {
+        // last k with cumulative[k] <= primeIndex
+        int lo = 0, hi = segments() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (cumulative[mid] <= primeIndex) lo = mid; else hi = mid - 1;
+        }
+        return lo;
+    }
+
+    /** This index followed by the given per-segment counts. */
+    SegmentCountIndex append(long[] counts) {
+        long[] grown = Arrays.copyOf(cumulative, cumulative.length + counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            grown[cumulative.length + i] = grown[cumulative.length + i - 1] + counts[i];
+        }
+        return new SegmentCountIndex(grown);
+    }
+
+    /**
+     * Counts for the segments not yet indexed that lie wholly inside [2, max], read off a full, ascending
+     * list of the primes up to max in its first {@code length} entries (e.g. a sieve that started at 2).
+     */
+    long[] countsFrom(int[] primes, int length, long max) {
+        int from = segments();
+        int to = (int) ((max + 1) / SEGMENT_SPAN);
+        if (to <= from) return new long[0];
+
+        long[] counts = new long[to - from];
+        long before = cumulative[from];
+        for (int k = from; k < to; k++) {
+            long upTo = primesBelow(primes, length, (long) (k + 1) * SEGMENT_SPAN);
+            counts[k - from] = upTo - before;
+            before = upTo;
+        }
+        return counts;
+    }
+
+    private static int primesBelow(int[] primes, int length, long limit) {
+        int lo = 0, hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (primes[mid] < limit) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
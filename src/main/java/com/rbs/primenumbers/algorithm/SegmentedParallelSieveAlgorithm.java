@@ -5,78 +5,474 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
 /**
  * Segmented Sieve with parallel segments.
  * Good for large max values. Configurable segment size.
+ * Segments are sieved on the dedicated {@link SievePool}, not on the common pool.
+ *
+ * The range is split into one contiguous chunk per task (a few per worker); each chunk is sieved by
+ * {@link OddSegmentSieve} in cache-sized, odd-only blocks ({@code primes.segment-cache-bytes}).
+ * Results are assembled in two parallel passes: chunks keep their bitmap and popcount, a prefix sum
+ * over the counts gives each chunk its offset, and every chunk writes its primes straight into one
+ * exactly sized array.
+ *
+ * Sieves that start at 2 also leave behind a {@link SegmentCountIndex} of cumulative prime counts, so
+ * primes can be paged by position ({@link #primesByIndex}) by sieving just the segments a page falls in.
+ *
+ * {@link #computeArrayUpTo(int)} is incremental: the primes of the largest bound so far are kept (up to
+ * {@code primes.segmented.retain-bytes}), a smaller bound is a prefix view of them, and a larger one only
+ * sieves (previous bound, max] and appends it. Base primes grow with sqrt(max) the same way.
  */
 @Slf4j
 @Component("segmented")
 @RequiredArgsConstructor
 public class SegmentedParallelSieveAlgorithm implements PrimeAlgorithm {
 
+    /** floor(sqrt(Long.MAX_VALUE)); squaring anything larger overflows. */
+    private static final long MAX_LONG_SQRT = 3_037_000_499L;
+
+    /** Largest bound whose base primes (up to its square root) still fit an int: 2^62 - 1. */
+    public static final long MAX_BOUND = (1L << 62) - 1;
+
+    private final SievePool sievePool;
+
+    /** L1/L2-sized block; 32 KiB of odd-only bits covers 524,288 integers. */
+    private static final int DEFAULT_BLOCK_BYTES = 32 * 1024;
+
+    /** Smallest segment (and parallel chunk) in integers; a lower {@code primes.segment-size} is raised to it. */
+    static final int MIN_SEGMENT_SIZE = 10_000;
+
+    /** Chunks per pool worker, so uneven chunks still balance. */
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    /** Keeps per-chunk setup (one division per base prime) small next to the sieving itself. */
+    private static final long MIN_NUMBERS_PER_BASE_PRIME = 8;
+
     @Value("${primes.segment-size:1000000}")
     private int segmentSize;
 
+    @Value("${primes.segment-cache-bytes:" + DEFAULT_BLOCK_BYTES + "}")
+    private int blockBytes;
+
+    private volatile OddSegmentSieve engine;
+
+    /** Base primes cached across calls; replaced (never mutated) when a larger sqrt bound is needed. */
+    private volatile BasePrimes basePrimes = new BasePrimes(1, new int[0]);
+
+    private record BasePrimes(int limit, int[] primes) {}
+
+    /** Largest retained result of computeArrayUpTo, in bytes of primes; 0 sieves every call from 2. */
+    @Value("${primes.segmented.retain-bytes:67108864}")
+    private long retainBytes;
+
+    /**
+     * Primes up to bound, in entries [0, count) of primes; those never change, later growth only writes
+     * past count and publishes a new instance.
+     */
+    private record Extent(int bound, int[] primes, int count) {
+        PrimeArray upTo(int max) {
+            return PrimeArray.of(primes, count).upTo(max);
+        }
+    }
+
+    private volatile Extent extent = new Extent(1, new int[0], 0);
+    private final ReentrantLock extendLock = new ReentrantLock();
+
+    /** Cumulative counts per segment; replaced (never mutated) as more of the number line is counted. */
+    private volatile SegmentCountIndex countIndex = SegmentCountIndex.EMPTY;
+    private final Object countIndexLock = new Object();
+
     @Override
     public String name() { return "segmented"; }
 
     @Override
-    public List<Integer> computeUpTo(int max) {
-        if (max < 2) return List.of();
+    public boolean sievesWindowOnly() { return true; }
 
-        int limit = (int) Math.sqrt(max);
-        List<Integer> basePrimes = simpleSieve(limit);
+    @Override
+    public boolean parallel() { return true; }
 
-        int segSize = Math.max(10_000, segmentSize);
-        int start = 2;
-        int totalNumbers = max - start + 1;
-        int segments = Math.max(1, (totalNumbers + segSize - 1) / segSize);
+    @Override
+    public boolean isCached(int max) { return max <= extent.bound(); }
+
+    @Override
+    public long numbersToSieve(long max) {
+        Extent e = extent;
+        return e.count() == 0 ? max : Math.max(0, max - e.bound());
+    }
+
+    @Override
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
+        Extent e = extent;
+        if (max <= e.bound()) return e.upTo(max);
+        if (Integer.BYTES * (long) PrimeArray.maxPrimeCount(max) > retainBytes) {
+            // too big to keep: still start from what is kept, but build a one-off array
+            return e.count() == 0 ? sieveWindow(2, max) : append(e, max, false).upTo(max);
+        }
+        return extendTo(max).upTo(max);
+    }
+
+    /**
+     * Compute all primes in [low, high] by sieving only that window (int space, primitive result).
+     * Base primes up to sqrt(high) are cached, so consecutive windows don't re-sieve them.
+     */
+    public PrimeArray sieveWindow(int low, int high) {
+        int start = Math.max(2, low);
+        if (high < start) return PrimeArray.empty();
+
+        long t0 = System.nanoTime();
+        int[] base = basePrimesUpTo((int) Math.sqrt(high));
+        ComputePhases.record(ComputePhases.BASE_SIEVE, t0);
+
+        OddSegmentSieve sieve = engine();
+        long totalNumbers = (long) high - start + 1;
+        long chunk = chunkSize(totalNumbers, base.length, sieve);
+        int chunks = (int) ((totalNumbers + chunk - 1) / chunk);
+
+        log.debug("Segmented sieve over [{}, {}], chunks={}, chunkSize={}", start, high, chunks, chunk);
+
+        long t1 = System.nanoTime();
+        OddSegmentSieve.Bits[] parts = sievePool.invoke(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(i -> {
+                    int chunkLow = (int) (start + i * chunk);
+                    int chunkHigh = (int) Math.min(chunkLow + chunk - 1, high);
+                    return sieve.sieveBits(chunkLow, chunkHigh, base);
+                })
+                .toArray(OddSegmentSieve.Bits[]::new));
+        ComputePhases.record(ComputePhases.SIEVE, t1);
+
+        long t2 = System.nanoTime();
+        int[] offsets = offsets(parts);
+        int[] primes = new int[offsets[chunks]];
+        sievePool.invoke(() -> IntStream.range(0, chunks)
+                .parallel()
+                .forEach(i -> parts[i].writeInts(primes, offsets[i])));
+        ComputePhases.record(ComputePhases.ASSEMBLY, t2);
+
+        if (start == 2) indexCounts(primes, primes.length, high);
+        return PrimeArray.of(primes);
+    }
+
+    /**
+     * 64-bit variant of {@link #sieveWindow(int, int)}: sieves only [from, to], for windows anywhere
+     * below ~10^18. Crossing off works on offsets inside the window, so nothing overflows near the top.
+     */
+    @Override
+    public long[] computeRange(long from, long to) {
+        long start = Math.max(2, from);
+        if (to < start) return new long[0];
+
+        long t0 = System.nanoTime();
+        int[] base = basePrimesUpTo(Math.toIntExact(isqrt(to)));
+        ComputePhases.record(ComputePhases.BASE_SIEVE, t0);
 
-        log.debug("Segmented sieve up to {}, segments={}, segmentSize={}", max, segments, segSize);
+        OddSegmentSieve sieve = engine();
+        long totalNumbers = to - start + 1;
+        long chunk = chunkSize(totalNumbers, base.length, sieve);
+        int chunks = Math.toIntExact((totalNumbers + chunk - 1) / chunk);
 
-        return IntStream.range(0, segments)
+        log.debug("Segmented 64-bit sieve over [{}, {}], chunks={}, chunkSize={}", start, to, chunks, chunk);
+
+        long t1 = System.nanoTime();
+        OddSegmentSieve.Bits[] parts = sievePool.invoke(() -> IntStream.range(0, chunks)
                 .parallel()
-                .mapToObj(segIndex -> {
-                    int low = start + segIndex * segSize;
-                    int high = Math.min(low + segSize - 1, max);
-                    return sieveSegment(low, high, basePrimes);
+                .mapToObj(i -> {
+                    long chunkLow = start + i * chunk;
+                    long chunkHigh = chunkLow + Math.min(to - chunkLow, chunk - 1);
+                    return sieve.sieveBits(chunkLow, chunkHigh, base);
                 })
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+                .toArray(OddSegmentSieve.Bits[]::new));
+        ComputePhases.record(ComputePhases.SIEVE, t1);
+
+        long t2 = System.nanoTime();
+        int[] offsets = offsets(parts);
+        long[] primes = new long[offsets[chunks]];
+        sievePool.invoke(() -> IntStream.range(0, chunks)
+                .parallel()
+                .forEach(i -> parts[i].writeLongs(primes, offsets[i])));
+        ComputePhases.record(ComputePhases.ASSEMBLY, t2);
+        return primes;
+    }
+
+    /**
+     * Hand primes <= max to the consumer one segment at a time, in ascending order.
+     * Segments are sieved in parallel waves of one segment per core and released once consumed,
+     * so memory stays bounded by a few segments no matter how large max is.
+     */
+    public void forEachSegment(int max, Consumer<PrimeArray> consumer) {
+        if (max < 2) return;
+
+        int[] base = basePrimesUpTo((int) Math.sqrt(max));
+
+        OddSegmentSieve sieve = engine();
+        int segSize = Math.max(MIN_SEGMENT_SIZE, segmentSize);
+        int start = 2;
+        long totalNumbers = (long) max - start + 1;
+        int segments = (int) Math.max(1, (totalNumbers + segSize - 1) / segSize);
+        int wave = Math.max(1, sievePool.parallelism());
+
+        log.debug("Streaming segmented sieve up to {}, segments={}, wave={}", max, segments, wave);
+
+        for (int first = 0; first < segments; first += wave) {
+            int waveStart = first;
+            int[][] batch = sievePool.invoke(() -> IntStream.range(waveStart, Math.min(segments, waveStart + wave))
+                    .parallel()
+                    .mapToObj(segIndex -> {
+                        int segLow = (int) (start + (long) segIndex * segSize);
+                        int segHigh = (int) Math.min((long) segLow + segSize - 1, max);
+                        return sieve.sieveInts(segLow, segHigh, base);
+                    })
+                    .toArray(int[][]::new));
+
+            for (int[] primes : batch) {
+                consumer.accept(PrimeArray.of(primes));
+            }
+        }
+    }
+
+    /**
+     * The primes at 0-based positions [offset, offset + limit) of the ordered list of all primes
+     * (position 0 is 2). Counts whatever part of the number line the count index is still missing,
+     * then sieves only the one or two indexed segments the page falls in.
+     */
+    public long[] primesByIndex(long offset, int limit) {
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must be ≥ 0");
+        if (limit == 0) return new long[0];
+
+        long last = offset + limit - 1;
+        SegmentCountIndex index = indexCovering(last);
+
+        int first = index.segmentOf(offset);
+        long from = (long) first * SegmentCountIndex.SEGMENT_SPAN;
+        long to = ((long) index.segmentOf(last) + 1) * SegmentCountIndex.SEGMENT_SPAN - 1;
+        long[] window = computeRange(from, to);
+
+        int skip = (int) (offset - index.primesBefore(first));
+        return Arrays.copyOfRange(window, skip, skip + limit);
+    }
+
+    /** Rough number of integers {@link #primesByIndex} has to sieve or count for this page. */
+    public long numbersToSieveForPage(long offset, int limit) {
+        SegmentCountIndex index = countIndex;
+        long last = offset + limit - 1;
+        long window = 2L * SegmentCountIndex.SEGMENT_SPAN;
+        if (last < index.primes()) return window;
+        return Math.max(0, NthPrimeFinder.upperBound(last + 1) - index.bound()) + window;
+    }
+
+    /** Largest bound computeArrayUpTo currently answers without sieving. */
+    int retainedBound() {
+        return extent.bound();
+    }
+
+    /** All primes <= limit (possibly followed by larger ones from an earlier, bigger request). */
+    int[] basePrimesUpTo(int limit) {
+        BasePrimes cached = basePrimes;
+        if (cached.limit() >= limit) return cached.primes();
+
+        BasePrimes grown = new BasePrimes(limit, simpleSieve(limit));
+        basePrimes = grown;
+        return grown.primes();
     }
 
     // --- helpers ---
 
-    private List<Integer> sieveSegment(int low, int high, List<Integer> basePrimes) {
-        int len = high - low + 1;
-        BitSet composite = new BitSet(len);
+    /** Grows the retained primes to max; concurrent larger requests wait and then reuse the result. */
+    private Extent extendTo(int max) {
+        extendLock.lock();
+        try {
+            Extent e = extent;
+            if (max <= e.bound()) return e; // another thread got there first
+            Extent grown = append(e, max, true);
+            extent = grown;
+            return grown;
+        } finally {
+            extendLock.unlock();
+        }
+    }
+
+    /**
+     * e followed by the primes in (e.bound, max], sieved on their own. In place (past e.count, so earlier
+     * views are untouched) when the array is to be kept, into a fresh, exactly sized array otherwise.
+     */
+    private Extent append(Extent e, int max, boolean retain) {
+        PrimeArray tail = sieveWindow(e.bound() + 1, max);
+
+        long t0 = System.nanoTime();
+        int count = Math.addExact(e.count(), tail.size());
+        int[] primes = e.primes();
+        if (!retain) {
+            primes = Arrays.copyOf(primes, count);
+        } else if (count > primes.length) {
+            // headroom for the next, slightly larger bound, within the retention budget
+            long budget = retainBytes / Integer.BYTES;
+            primes = Arrays.copyOf(primes, (int) Math.max(count, Math.min(budget, count + (long) (count >> 1))));
+        }
+        System.arraycopy(tail.backingArray(), tail.offset(), primes, e.count(), tail.size());
+        ComputePhases.record(ComputePhases.ASSEMBLY, t0);
 
-        for (int p : basePrimes) {
-            long p2 = (long) p * p;
-            long first = Math.max(p2, ((long) Math.ceil((double) low / p)) * p);
-            for (long m = first; m <= high; m += p) {
-                composite.set((int) (m - low));
+        if (e.count() > 0) indexCounts(primes, count, max);
+        log.debug("Segmented primes extended from {} to {} (count={}, retained={})", e.bound(), max, count, retain);
+        return new Extent(max, primes, count);
+    }
+
+    /**
+     * The count index, first grown (by counting, not listing, primes) until it holds this position.
+     * Counting runs outside the lock, so sieves folding their counts in are never held up by a deep page;
+     * two deep pages at once may count the same segments, and the second simply publishes nothing new.
+     */
+    private SegmentCountIndex indexCovering(long primeIndex) {
+        SegmentCountIndex index = countIndex;
+        while (primeIndex >= index.primes()) {
+            // Aim straight past the n-th prime's upper bound, so this is one parallel pass
+            long bound = NthPrimeFinder.upperBound(primeIndex + 1);
+            int target = Math.max(index.segments() + 1,
+                    Math.toIntExact(bound / SegmentCountIndex.SEGMENT_SPAN + 1));
+            index = publishCounts(index.segments(), countSegments(index.segments(), target));
+        }
+        return index;
+    }
+
+    /**
+     * Appends the counts of segments [from, from + counts.length) to the published index, minus any that
+     * another thread published meanwhile. The lock only covers this hand-off, never the counting.
+     */
+    private SegmentCountIndex publishCounts(int from, long[] counts) {
+        synchronized (countIndexLock) {
+            SegmentCountIndex index = countIndex;
+            int known = index.segments() - from; // >= 0: the index only ever grows
+            if (known < counts.length) {
+                index = index.append(Arrays.copyOfRange(counts, known, counts.length));
+                countIndex = index;
             }
+            return index;
         }
+    }
 
-        if (low == 0) { composite.set(0); composite.set(1); }
-        if (low == 1) { composite.set(0); }
+    /** Prime counts of index segments [fromSegment, toSegment). */
+    private long[] countSegments(int fromSegment, int toSegment) {
+        log.debug("Counting index segments [{}, {})", fromSegment, toSegment);
+        long span = SegmentCountIndex.SEGMENT_SPAN;
+        return countSpans(fromSegment * span, toSegment * span - 1, span);
+    }
+
+    /**
+     * Prime counts of consecutive spans of {@code span} integers covering [from, to] (the last one cut at to),
+     * counted in parallel on the pool by popcount; no prime is listed.
+     */
+    long[] countSpans(long from, long to, long span) {
+        if (to < from) return new long[0];
+
+        long t0 = System.nanoTime();
+        int[] base = basePrimesUpTo(Math.toIntExact(isqrt(to)));
+        ComputePhases.record(ComputePhases.BASE_SIEVE, t0);
+
+        OddSegmentSieve sieve = engine();
+        int spans = Math.toIntExact((to - from) / span + 1);
+        long t1 = System.nanoTime();
+        long[] counts = sievePool.invoke(() -> IntStream.range(0, spans)
+                .parallel()
+                .mapToLong(k -> {
+                    long low = from + k * span;
+                    return sieve.count(low, low + Math.min(to - low, span - 1), base);
+                })
+                .toArray());
+        ComputePhases.record(ComputePhases.SIEVE, t1);
+        return counts;
+    }
+
+    /**
+     * Sum, twin pairs, largest gap and residue counts of the primes <= max, without listing them: each chunk
+     * folds its bitmap into its own {@link PrimeStats} on the pool, and the partials are merged in order,
+     * which only needs the first and last prime of each. Memory is one block per worker, whatever max is.
+     */
+    public PrimeStats stats(long max, int... moduli) {
+        PrimeStats total = new PrimeStats(moduli);
+        if (max < 2) return total;
+
+        long t0 = System.nanoTime();
+        int[] base = basePrimesUpTo(Math.toIntExact(isqrt(max)));
+        ComputePhases.record(ComputePhases.BASE_SIEVE, t0);
+
+        OddSegmentSieve sieve = engine();
+        long chunk = chunkSize(max - 1, base.length, sieve);
+        int chunks = Math.toIntExact((max - 1 + chunk - 1) / chunk);
+
+        log.debug("Segmented stats up to {}, chunks={}, chunkSize={}", max, chunks, chunk);
+
+        long t1 = System.nanoTime();
+        PrimeStats[] parts = sievePool.invoke(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(i -> {
+                    long chunkLow = 2 + i * chunk;
+                    long chunkHigh = chunkLow + Math.min(max - chunkLow, chunk - 1);
+                    return sieve.stats(chunkLow, chunkHigh, base, total.emptyCopy());
+                })
+                .toArray(PrimeStats[]::new));
+        for (PrimeStats part : parts) total.merge(part);
+        ComputePhases.record(ComputePhases.SIEVE, t1);
+        return total;
+    }
+
+    /** Whether the count index already reaches the prime at this 0-based position. */
+    boolean isIndexed(long primeIndex) {
+        return primeIndex < countIndex.primes();
+    }
 
-        List<Integer> primes = new ArrayList<>();
-        for (int i = composite.nextClearBit(0); i >= 0 && i < len; i = composite.nextClearBit(i + 1)) {
-            primes.add(low + i);
+    /** Folds the segments a sieve from 2 fully covered into the count index, for free. */
+    private void indexCounts(int[] primes, int count, int max) {
+        SegmentCountIndex index = countIndex;
+        if ((max + 1L) / SegmentCountIndex.SEGMENT_SPAN <= index.segments()) return;
+        long[] counts = index.countsFrom(primes, count, max);
+        if (counts.length > 0) publishCounts(index.segments(), counts);
+    }
+
+    private OddSegmentSieve engine() {
+        OddSegmentSieve e = engine;
+        if (e == null) engine = e = new OddSegmentSieve(blockBytes > 0 ? blockBytes : DEFAULT_BLOCK_BYTES);
+        return e;
+    }
+
+    /**
+     * Numbers per parallel task: at least the configured segment size, but large enough that each worker
+     * gets only a few chunks, so offsets and buckets are carried across many blocks. Every chunk starts by
+     * placing each base prime once, so far-out windows (millions of base primes) get fewer, longer chunks.
+     * Multiple of a block.
+     */
+    private long chunkSize(long totalNumbers, int basePrimeCount, OddSegmentSieve sieve) {
+        long tasks = (long) CHUNKS_PER_WORKER * sievePool.parallelism();
+        long size = Math.max(Math.max(MIN_SEGMENT_SIZE, segmentSize), (totalNumbers + tasks - 1) / tasks);
+        size = Math.max(size, MIN_NUMBERS_PER_BASE_PRIME * basePrimeCount);
+        long span = sieve.blockSpan();
+        return (size + span - 1) / span * span;
+    }
+
+    /** floor(sqrt(n)) without trusting double rounding near 10^18. */
+    static long isqrt(long n) {
+        long r = Math.min((long) Math.sqrt((double) n), MAX_LONG_SQRT);
+        while (r * r > n) r--;
+        while (r < MAX_LONG_SQRT && (r + 1) * (r + 1) <= n) r++;
+        return r;
+    }
+
+    /** Prefix sums of the chunk counts: where each chunk starts writing, plus the total at the end. */
+    private static int[] offsets(OddSegmentSieve.Bits[] parts) {
+        int[] offsets = new int[parts.length + 1];
+        for (int i = 0; i < parts.length; i++) {
+            offsets[i + 1] = Math.addExact(offsets[i], parts[i].count());
         }
-        return primes;
+        return offsets;
     }
 
-    private List<Integer> simpleSieve(int n) {
-        if (n < 2) return List.of();
+    private int[] simpleSieve(int n) {
+        if (n < 2) return new int[0];
         BitSet composite = new BitSet(n + 1);
         composite.set(0); composite.set(1);
 
@@ -89,9 +485,10 @@ public class SegmentedParallelSieveAlgorithm implements PrimeAlgorithm {
             }
         }
 
-        List<Integer> primes = new ArrayList<>();
+        int[] primes = new int[n + 1 - composite.cardinality()];
+        int count = 0;
         for (int i = composite.nextClearBit(2); i >= 0 && i <= n; i = composite.nextClearBit(i + 1)) {
-            primes.add(i);
+            primes[count++] = i;
             if (i == Integer.MAX_VALUE) break;
         }
         return primes;
@@ -0,0 +1,63 @@
+package com.rbs.primenumbers.algorithm;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated ForkJoinPool for parallel sieve work.
+ *
+ * Parallel streams run in the pool of the thread that starts them, so wrapping them in {@link #invoke}
+ * keeps large sieves off the JVM-wide common pool (and away from Tomcat and everything else using it).
+ * Size it with {@code primes.executor.parallelism}; 0 means one worker per available processor.
+ */
+@Slf4j
+@Component
+public class SievePool {
+
+    private final ForkJoinPool pool;
+
+    public SievePool(@Value("${primes.executor.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("sieve-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+        log.debug("Sieve pool started with parallelism={}", threads);
+    }
+
+    /** Runs the task on the pool and waits for it; runs inline when already on one of its workers. */
+    public <T> T invoke(Supplier<T> task) {
+        if (Thread.currentThread() instanceof ForkJoinWorkerThread worker && worker.getPool() == pool) {
+            return task.get();
+        }
+        return pool.submit(task::get).join();
+    }
+
+    public void invoke(Runnable task) {
+        invoke(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /** The underlying pool, for monitoring only. */
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -3,9 +3,7 @@ package com.rbs.primenumbers.algorithm;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.List;
 
 @Slf4j
 @Component("simple") // bean name used for selection
@@ -15,9 +13,10 @@ public class SimpleSieveAlgorithm implements PrimeAlgorithm {
     public String name() { return "simple"; }
 
     @Override
-    public List<Integer> computeUpTo(int max) {
-        if (max < 2) return List.of();
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
 
+        long t0 = System.nanoTime();
         BitSet composite = new BitSet(max + 1);
         composite.set(0); composite.set(1);
 
@@ -30,11 +29,17 @@ public class SimpleSieveAlgorithm implements PrimeAlgorithm {
             }
         }
 
-        List<Integer> primes = new ArrayList<>();
+        ComputePhases.record(ComputePhases.SIEVE, t0);
+
+        long t1 = System.nanoTime();
+        // Exact size up front: everything in [0, max] that is not composite
+        int[] primes = new int[(int) ((long) max + 1 - composite.cardinality())];
+        int n = 0;
         for (int i = composite.nextClearBit(2); i >= 0 && i <= max; i = composite.nextClearBit(i + 1)) {
-            primes.add(i);
+            primes[n++] = i;
             if (i == Integer.MAX_VALUE) break;
         }
-        return primes;
+        ComputePhases.record(ComputePhases.ASSEMBLY, t1);
+        return PrimeArray.of(primes, n);
     }
 }
@@ -0,0 +1,110 @@
+package com.rbs.primenumbers.algorithm;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Mod-30 wheel sieve over packed long[] words.
+ *
+ * Only the 8 residues coprime to 30 get a bit (one byte per 30 integers, ~3.75x smaller than
+ * a bit per integer). For a prime p, the multiples p*q with q in a fixed residue class are
+ * exactly 8*p bits apart, so crossing off walks a precomputed stride instead of testing every n.
+ */
+@Slf4j
+@Component("wheel") // bean name used for selection
+public class WheelSieveAlgorithm implements PrimeAlgorithm {
+
+    /** Residues mod 30 that are coprime to 30; bit k of each byte stands for 30*i + RESIDUES[k]. */
+    private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+    /** n % 30 -> bit within the byte, or -1 when n shares a factor with 30. */
+    private static final int[] RESIDUE_INDEX = new int[30];
+
+    static {
+        Arrays.fill(RESIDUE_INDEX, -1);
+        for (int k = 0; k < RESIDUES.length; k++) RESIDUE_INDEX[RESIDUES[k]] = k;
+    }
+
+    @Override
+    public String name() { return "wheel"; }
+
+    @Override
+    public PrimeArray computeArrayUpTo(int max) {
+        if (max < 2) return PrimeArray.empty();
+
+        long t0 = System.nanoTime();
+        long lastBit = lastCandidateBit(max);
+        long[] composite = new long[(int) ((lastBit >>> 6) + 1)];
+        composite[0] |= 1L; // 1 is not prime
+
+        int limit = (int) Math.sqrt(max);
+        for (long bit = 1; bit <= lastBit; bit++) {
+            long p = toValue(bit);
+            if (p > limit) break;
+            if ((composite[(int) (bit >>> 6)] & (1L << bit)) != 0) continue;
+
+            long stride = 8 * p;
+            for (int r : RESIDUES) {
+                // smallest q >= p with q ≡ r (mod 30); p*q is then the first multiple in that class
+                long q = p + Math.floorMod(r - p, 30);
+                long m = p * q;
+                if (m > max) continue;
+                for (long b = toBit(m); b <= lastBit; b += stride) {
+                    composite[(int) (b >>> 6)] |= 1L << b;
+                }
+            }
+        }
+
+        ComputePhases.record(ComputePhases.SIEVE, t0);
+
+        long t1 = System.nanoTime();
+        PrimeArray primes = collect(composite, lastBit, max);
+        ComputePhases.record(ComputePhases.ASSEMBLY, t1);
+        return primes;
+    }
+
+    // --- helpers ---
+
+    private static PrimeArray collect(long[] composite, long lastBit, int max) {
+        long marked = 0;
+        int lastWord = (int) (lastBit >>> 6);
+        long tailMask = -1L >>> (63 - (lastBit & 63));
+        for (int w = 0; w < lastWord; w++) marked += Long.bitCount(composite[w]);
+        marked += Long.bitCount(composite[lastWord] & tailMask);
+
+        int small = max >= 5 ? 3 : max >= 3 ? 2 : 1; // 2, 3, 5 are not on the wheel
+        int[] primes = new int[(int) (lastBit + 1 - marked) + small];
+        int n = 0;
+        for (int p : new int[] {2, 3, 5}) {
+            if (p <= max) primes[n++] = p;
+        }
+
+        for (int w = 0; w <= lastWord; w++) {
+            long word = ~composite[w];
+            if (w == lastWord) word &= tailMask;
+            while (word != 0) {
+                long bit = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                primes[n++] = (int) toValue(bit);
+                word &= word - 1;
+            }
+        }
+        return PrimeArray.of(primes, n);
+    }
+
+    /** Bit index of the largest wheel candidate <= max. */
+    private static long lastCandidateBit(int max) {
+        int n = max;
+        while (RESIDUE_INDEX[n % 30] < 0) n--;
+        return toBit(n);
+    }
+
+    private static long toBit(long n) {
+        return (n / 30) * 8 + RESIDUE_INDEX[(int) (n % 30)];
+    }
+
+    private static long toValue(long bit) {
+        return (bit >>> 3) * 30 + RESIDUES[(int) (bit & 7)];
+    }
+}
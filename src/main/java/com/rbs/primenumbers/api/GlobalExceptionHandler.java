@@ -1,29 +1,61 @@
 package com.rbs.primenumbers.api;
 
+import com.rbs.primenumbers.domain.AdmissionController;
 import com.rbs.primenumbers.domain.PrimesService;
 import com.rbs.primenumbers.model.ErrorResponse;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.Instant;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
     @ExceptionHandler(jakarta.validation.ConstraintViolationException.class)
-    public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException ex) {
-        return ResponseEntity.badRequest().body(new ErrorResponse("ValidationError", ex.getMessage(), Instant.now()));
+    public ResponseEntity<ErrorResponse> handleConstraintViolation(ConstraintViolationException ex, WebRequest request) {
+        return respond(ResponseEntity.badRequest(), new ErrorResponse("ValidationError", ex.getMessage(), Instant.now()), request);
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
-    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
-        return ResponseEntity.badRequest().body(new ErrorResponse("InvalidArgument", ex.getMessage(), Instant.now()));
+    public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex, WebRequest request) {
+        return respond(ResponseEntity.badRequest(), new ErrorResponse("InvalidArgument", ex.getMessage(), Instant.now()), request);
     }
 
     @ExceptionHandler(PrimesService.UpperBoundExceededException.class)
-    public ResponseEntity<ErrorResponse> handleUpperBound(PrimesService.UpperBoundExceededException ex) {
-        return ResponseEntity.unprocessableEntity().body(new ErrorResponse("UpperBoundExceeded", ex.getMessage(), Instant.now()));
+    public ResponseEntity<ErrorResponse> handleUpperBound(PrimesService.UpperBoundExceededException ex, WebRequest request) {
+        return respond(ResponseEntity.unprocessableEntity(), new ErrorResponse("UpperBoundExceeded", ex.getMessage(), Instant.now()), request);
+    }
+
+    @ExceptionHandler(AdmissionController.CapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleCapacityExceeded(AdmissionController.CapacityExceededException ex, WebRequest request) {
+        var builder = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return respond(builder, new ErrorResponse("CapacityExceeded", ex.getMessage(), Instant.now()), request);
     }
-}
 
+    /**
+     * Errors are negotiated as JSON or XML like any other body. Clients that only accept a
+     * streaming/binary type (e.g. application/x-ndjson) would otherwise get a 500, so they get JSON.
+     */
+    private static ResponseEntity<ErrorResponse> respond(ResponseEntity.BodyBuilder builder, ErrorResponse body, WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null && !acceptsJsonOrXml(accept)) {
+            builder.contentType(MediaType.APPLICATION_JSON);
+        }
+        return builder.body(body);
+    }
+
+    private static boolean acceptsJsonOrXml(String accept) {
+        try {
+            return MediaType.parseMediaTypes(accept).stream().anyMatch(type ->
+                    type.isCompatibleWith(MediaType.APPLICATION_JSON) || type.isCompatibleWith(MediaType.APPLICATION_XML));
+        } catch (IllegalArgumentException e) {
+            return true; // malformed Accept: leave it to regular negotiation
+        }
+    }
+}
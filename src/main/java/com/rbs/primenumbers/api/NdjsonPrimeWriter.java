@@ -0,0 +1,48 @@
+package com.rbs.primenumbers.api;
+
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.model.PrimeResponseWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes segments of primes as NDJSON (one JSON number per line) straight to the response stream.
+ * Digits are formatted into one reusable byte buffer per segment; nothing is boxed or held after the write.
+ */
+class NdjsonPrimeWriter implements Consumer<PrimeArray> {
+
+    private static final int MAX_LINE = 11; // 10 digits of an int + '\n'
+
+    private final OutputStream out;
+    private byte[] buffer = new byte[0];
+    private long count;
+
+    NdjsonPrimeWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void accept(PrimeArray segment) {
+        int needed = segment.size() * MAX_LINE;
+        if (buffer.length < needed) buffer = new byte[needed];
+
+        int[] values = segment.backingArray();
+        int pos = 0;
+        for (int i = segment.offset(), end = i + segment.size(); i < end; i++) {
+            pos = PrimeResponseWriter.writeDigits(values[i], buffer, pos);
+            buffer[pos++] = '\n';
+        }
+
+        try {
+            out.write(buffer, 0, pos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        count += segment.size();
+    }
+
+    long count() { return count; }
+}
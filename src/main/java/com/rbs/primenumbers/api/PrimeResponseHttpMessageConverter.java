@@ -0,0 +1,66 @@
+package com.rbs.primenumbers.api;
+
+import com.rbs.primenumbers.domain.ComputeMetrics;
+import com.rbs.primenumbers.model.PrimeResponse;
+import com.rbs.primenumbers.model.PrimeResponseWriter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link PrimeResponse} bodies with {@link PrimeResponseWriter} instead of Jackson, for both JSON and
+ * XML. Being a converter bean, Boot registers it ahead of the Jackson converters, so it wins for this type
+ * and everything else still goes through Jackson. Write-only; timed like the Jackson converters
+ * ({@code primes.serialization}).
+ */
+@Component
+public class PrimeResponseHttpMessageConverter extends AbstractHttpMessageConverter<PrimeResponse> {
+
+    private final ComputeMetrics metrics;
+
+    public PrimeResponseHttpMessageConverter(ComputeMetrics metrics) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"),
+                MediaType.APPLICATION_XML, MediaType.TEXT_XML, new MediaType("application", "*+xml"));
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PrimeResponse.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected PrimeResponse readInternal(Class<? extends PrimeResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("PrimeResponse is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(PrimeResponse response, HttpOutputMessage outputMessage) throws IOException {
+        boolean xml = isXml(outputMessage.getHeaders().getContentType());
+        long start = System.nanoTime();
+        try {
+            if (xml) {
+                PrimeResponseWriter.writeXml(response, outputMessage.getBody());
+            } else {
+                PrimeResponseWriter.writeJson(response, outputMessage.getBody());
+            }
+        } finally {
+            metrics.recordSerialization(PrimeResponse.class.getSimpleName(), xml ? "xml" : "json",
+                    System.nanoTime() - start);
+        }
+    }
+
+    static boolean isXml(MediaType contentType) {
+        return contentType != null && (contentType.getSubtype().equals("xml") || contentType.getSubtype().endsWith("+xml"));
+    }
+}
@@ -1,24 +1,53 @@
 package com.rbs.primenumbers.api;
 
+import com.rbs.primenumbers.algorithm.ComputePhases;
+import com.rbs.primenumbers.algorithm.OddBitmap;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.PrimeStats;
 import com.rbs.primenumbers.domain.PrimesService;
+import com.rbs.primenumbers.model.NthPrimeResponse;
+import com.rbs.primenumbers.model.PrimalityResponse;
+import com.rbs.primenumbers.model.PrimeBatchRequest;
+import com.rbs.primenumbers.model.PrimeBatchResponse;
+import com.rbs.primenumbers.model.PrimeBinaryCodec;
+import com.rbs.primenumbers.model.PrimeCountResponse;
+import com.rbs.primenumbers.model.PrimePageResponse;
+import com.rbs.primenumbers.model.PrimeRangeResponse;
 import com.rbs.primenumbers.model.PrimeResponse;
+import com.rbs.primenumbers.model.PrimeStatsResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
 
 @Slf4j
 @RestController
@@ -29,6 +58,13 @@ public class PrimesController {
 
     private final PrimesService primesService;
 
+    private final ResponseBodyCache responseCache;
+
+    private final PrimeResponseHttpMessageConverter responseConverter;
+
+
+    /** Key of the async interceptor that hands a stream's admission permit back. */
+    private static final String STREAM_PERMIT = PrimesController.class.getName() + ".streamPermit";
 
     @Value("${primes.cache.max-age-seconds:3600}")
     private long cacheTtlSeconds;
@@ -39,15 +75,19 @@ public class PrimesController {
 
     /**
      * GET /api/v1/primes/{max}
-     * Optional: ?cache=true to enable HTTP caching (ETag + Cache-Control). ?algorithm=segmented to enable an advanced algorithm
+     * Optional: ?cache=true to enable HTTP caching (ETag + Cache-Control) and the server-side cache of serialized
+     * bodies. ?algorithm=segmented to enable an advanced algorithm
      */
     @Operation(
             summary = "Get primes up to and including max",
             description = """
             Returns all prime numbers ≤ max.
             Optional query parameters:
-            - `algorithm`: specify which algorithm to use (simple | segmented)
-            - `cache=true`: enable HTTP caching via ETag/304
+            - `algorithm`: specify which algorithm to use (simple | segmented | wheel | indexed | linear | atkin), or `auto` to let measured latencies decide
+            - `cache=true`: enable HTTP caching via ETag/304; bodies are also kept serialized (and gzipped,
+              for `Accept-Encoding: gzip`) on the server, so repeated bounds skip the sieve and serialization
+            Compact binary bodies are available via `Accept: application/x-prime-delta-varint`
+            or `Accept: application/x-prime-bitmap`.
             """
     )
     @ApiResponse(
@@ -62,54 +102,701 @@ public class PrimesController {
     )
     @ApiResponse(responseCode = "400", description = "Validation error")
     @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
 
     @GetMapping(value = "/{max}", produces = {"application/json", "application/xml"})
-    public ResponseEntity<PrimeResponse> getPrimes(
+    public ResponseEntity<?> getPrimes(
             @Parameter(description = "Upper bound (≥ 0)", example = "100")
             @PathVariable @Min(0) int max,
             @Parameter(description = "Algorithm to use (optional)", example = "segmented")
             @RequestParam(name = "algorithm", required = false) String algorithm,
             @Parameter(description = "Enable HTTP caching via ETag/304")
             @RequestParam(name = "cache", defaultValue = "false") boolean useCache,
-            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
         primesService.guardUpperBound(max);
 
 
         if (!useCache) {
             Instant start = Instant.now();
-            var primes = primesService.compute(max,algorithm);
+            PrimeArray primes;
+            String serverTiming;
+            try (var phases = ComputePhases.open()) {
+                primes = primesService.compute(max, algorithm);
+                serverTiming = ServerTiming.of(phases.phases(), Duration.between(start, Instant.now()).toNanos());
+            }
             long durationMs = Duration.between(start, Instant.now()).toMillis();
 
             log.info("Computed primes up to {} in {} ms (count={})", max, durationMs, primes.size());
 
             var body = new PrimeResponse(max, primes.size(), primes, Instant.now(), durationMs);
-            return ResponseEntity.ok(body);
+            return ResponseEntity.ok()
+                    .header(ServerTiming.HEADER, serverTiming)
+                    .body(body);
         }
 
-        // Cached path
+        // Cached path: the serialized body is kept server-side, so a hit is a byte copy
 
         String algoTag = (algorithm == null || algorithm.isBlank()) ? "default" : algorithm;
-        String etag = "\"primes-%d-%s-v1\"".formatted(max, algoTag);
-
-        if (etag.equals(ifNoneMatch)) {
-            log.info("ETag match for max={} algorithm={}, returning 304", max, algoTag);
-            return ResponseEntity.status(304)
-                    .eTag(etag)
-                    .cacheControl(CacheControl.maxAge(cacheTtl()).cachePublic())
-                    .build();
+        MediaType mediaType = preferredMediaType(accept);
+        String type = mediaType.toString();
+        boolean acceptsGzip = acceptsGzip(acceptEncoding);
+
+        for (String encoding : new String[] {ResponseBodyCache.IDENTITY, ResponseBodyCache.GZIP}) {
+            String etag = ResponseBodyCache.etag(max, algoTag, type, encoding);
+            if (etagMatches(ifNoneMatch, etag)) {
+                log.info("ETag match for max={} algorithm={}, returning 304", max, algoTag);
+                return ResponseEntity.status(304)
+                        .eTag(etag)
+                        .cacheControl(CacheControl.maxAge(cacheTtl()).cachePublic())
+                        .build();
+            }
         }
 
+        var cached = responseCache.get(max, algoTag, type, acceptsGzip);
+        String serverTiming = null;
+        if (cached == null) {
+            Instant start = Instant.now();
+            PrimeArray primes;
+            try (var phases = ComputePhases.open()) {
+                primes = primesService.compute(max, algorithm);
+                serverTiming = ServerTiming.of(phases.phases(), Duration.between(start, Instant.now()).toNanos());
+            }
+            long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+            log.info("Computed primes (cached path) up to {} in {} ms (count={})", max, durationMs, primes.size());
+
+            var body = new PrimeResponse(max, primes.size(), primes, Instant.now(), durationMs);
+            cached = responseCache.put(max, algoTag, type, serialize(body, mediaType), acceptsGzip);
+        } else {
+            log.info("Serving cached {} body for max={} algorithm={} ({} B, {})",
+                    type, max, algoTag, cached.bytes().length, cached.encoding());
+        }
+
+        var response = ResponseEntity.ok()
+                .contentType(mediaType)
+                .eTag(cached.etag())
+                .cacheControl(CacheControl.maxAge(cacheTtl()).cachePublic())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (ResponseBodyCache.GZIP.equals(cached.encoding())) {
+            response.header(HttpHeaders.CONTENT_ENCODING, ResponseBodyCache.GZIP);
+        }
+        if (serverTiming != null) {
+            response.header(ServerTiming.HEADER, serverTiming);
+        }
+        return response.body(cached.bytes());
+    }
+
+    /**
+     * JSON unless the client prefers XML; same outcome as converter negotiation for this endpoint. Accept
+     * entries are ranked like Spring's header negotiation does: by quality, then specific before wildcard,
+     * so {@code application/*;q=0.8, application/xml;q=0.8} is XML here too.
+     */
+    private static MediaType preferredMediaType(String accept) {
+        if (accept == null || accept.isBlank()) return MediaType.APPLICATION_JSON;
+        try {
+            List<MediaType> types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+            MimeTypeUtils.sortBySpecificity(types);
+            for (MediaType candidate : types) {
+                if (candidate.isCompatibleWith(MediaType.APPLICATION_JSON)) return MediaType.APPLICATION_JSON;
+                if (candidate.isCompatibleWith(MediaType.APPLICATION_XML)) return MediaType.APPLICATION_XML;
+            }
+        } catch (IllegalArgumentException e) {
+            // malformed Accept: fall back to JSON
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] coding = part.trim().split(";");
+            if (coding[0].trim().equalsIgnoreCase(ResponseBodyCache.GZIP)) {
+                return coding.length < 2 || !coding[1].replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+
+    /** If-None-Match may list several tags, weak ones, or "*". */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    /** Writes the body through the regular converter, so cached bytes match an uncached response. */
+    private byte[] serialize(PrimeResponse body, MediaType mediaType) {
+        var out = new ByteArrayOutputStream();
+        HttpOutputMessage message = new HttpOutputMessage() {
+            private final HttpHeaders headers = new HttpHeaders();
+
+            @Override
+            public OutputStream getBody() { return out; }
+
+            @Override
+            public HttpHeaders getHeaders() { return headers; }
+        };
+        try {
+            responseConverter.write(body, mediaType, message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * GET /api/v1/primes/{max}/count
+     * Only pi(max) is returned; counted in O(max^(3/4)) without a sieve, so max can be 64-bit.
+     */
+    @Operation(
+            summary = "Count primes up to and including max",
+            description = """
+            Returns pi(max), the number of primes ≤ max, without listing them.
+            Uses a sublinear prime-counting method, so max may go far beyond what a full sieve
+            could handle (up to `primes.count.max-allowed`).
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Prime count",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimeCountResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimeCountResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/{max}/count", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimeCountResponse> countPrimes(
+            @Parameter(description = "Upper bound (≥ 0)", example = "100000000000")
+            @PathVariable @Min(0) long max
+    ) {
         Instant start = Instant.now();
-        var primes = primesService.compute(max,algorithm);
+        long count = primesService.countPrimes(max);
         long durationMs = Duration.between(start, Instant.now()).toMillis();
 
-        log.info("Computed primes (cached path) up to {} in {} ms (count={})", max, durationMs, primes.size());
+        log.info("Counted primes up to {} in {} ms (count={})", max, durationMs, count);
+
+        return ResponseEntity.ok(new PrimeCountResponse(max, count, Instant.now(), durationMs));
+    }
 
-        var body = new PrimeResponse(max, primes.size(), primes, Instant.now(), durationMs);
+    /**
+     * GET /api/v1/primes/{max}/stats?metrics=sum,twins,maxGap,mod:4
+     * Aggregates folded into each segment as it is sieved; the primes themselves are never listed.
+     */
+    @Operation(
+            summary = "Aggregate statistics over the primes up to and including max",
+            description = """
+            Returns the prime count plus the requested metrics: `sum`, `twins` (pairs p, p + 2),
+            `maxGap` (largest gap between consecutive primes) and `mod:k` (counts per residue mod k,
+            repeatable). Without `metrics`, sum, twins and maxGap are returned. Every segment of the sieve
+            folds its own bitmap into a partial aggregate and the partials are merged across segment
+            borders, so memory stays at a few segments and max may go up to `primes.stats.max-allowed`.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Prime statistics",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimeStatsResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimeStatsResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error or unknown metric")
+    @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/{max}/stats", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimeStatsResponse> getStats(
+            @Parameter(description = "Upper bound (≥ 0)", example = "1000000000")
+            @PathVariable @Min(0) long max,
+            @Parameter(description = "Comma-separated metrics: sum, twins, maxGap, mod:k", example = "sum,twins,maxGap,mod:4")
+            @RequestParam(required = false) String metrics
+    ) {
+        Instant start = Instant.now();
+        PrimesService.Stats stats;
+        String serverTiming;
+        try (var phases = ComputePhases.open()) {
+            stats = primesService.stats(max, metrics);
+            serverTiming = ServerTiming.of(phases.phases(), Duration.between(start, Instant.now()).toNanos());
+        }
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        PrimeStats values = stats.values();
+        log.info("Aggregated primes up to {} in {} ms (count={}, metrics={})", max, durationMs, values.count(), metrics);
+
+        int[] moduli = values.moduli();
+        List<PrimeStatsResponse.Residues> residues = new ArrayList<>(moduli.length);
+        for (int i = 0; i < moduli.length; i++) {
+            residues.add(new PrimeStatsResponse.Residues(moduli[i], values.residues(i)));
+        }
+        boolean gap = stats.metrics().contains("maxGap") && values.count() > 1;
+
+        var body = PrimeStatsResponse.builder()
+                .input(max)
+                .count(values.count())
+                .sum(stats.metrics().contains("sum") ? values.sum() : null)
+                .twinPairs(stats.metrics().contains("twins") ? values.twinPairs() : null)
+                .maxGap(gap ? new PrimeStatsResponse.Gap(values.maxGap(), values.maxGapAfter(),
+                        values.maxGapAfter() + values.maxGap()) : null)
+                .residues(residues.isEmpty() ? null : residues)
+                .computedAt(Instant.now())
+                .durationMs(durationMs)
+                .build();
         return ResponseEntity.ok()
-                .eTag(etag)
-                .cacheControl(CacheControl.maxAge(cacheTtl()).cachePublic())
+                .header(ServerTiming.HEADER, serverTiming)
+                .body(body);
+    }
+
+    /**
+     * GET /api/v1/primes/nth/{n}
+     * Just p_n: bracketed by explicit bounds, then found by counting, never by listing the primes before it.
+     */
+    @Operation(
+            summary = "Get the n-th prime",
+            description = """
+            Returns p_n, 1-based (n = 1 is 2). The answer is bracketed with Rosser–Schoenfeld / Dusart
+            bounds, the primes below the bracket are counted sublinearly and the bracket is popcounted
+            segment by segment, so no prime list is built. n ≤ `primes.nth.max-allowed`.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "The n-th prime",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = NthPrimeResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = NthPrimeResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "n exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/nth/{n}", produces = {"application/json", "application/xml"})
+    public ResponseEntity<NthPrimeResponse> getNthPrime(
+            @Parameter(description = "1-based position (≥ 1)", example = "10000000")
+            @PathVariable @Min(1) long n
+    ) {
+        Instant start = Instant.now();
+        long prime = primesService.nthPrime(n);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Found prime #{} = {} in {} ms", n, prime, durationMs);
+
+        return ResponseEntity.ok(new NthPrimeResponse(n, prime, Instant.now(), durationMs));
+    }
+
+    /**
+     * POST /api/v1/primes/test
+     * Body: JSON array of longs. Answers whether each one is prime, instead of clients
+     * downloading a full prime list to look a few numbers up.
+     */
+    @Operation(
+            summary = "Test a batch of values for primality",
+            description = """
+            Takes a JSON array of 64-bit integers and returns one boolean per value, in the same order.
+            Values covered by the in-memory prime index are a bitmap lookup; the rest use deterministic
+            Miller–Rabin. At most `primes.test.max-batch` values per request.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Primality per value",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimalityResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimalityResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Batch too large")
+
+    @PostMapping(value = "/test", consumes = "application/json", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimalityResponse> testPrimality(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Values to test", required = true)
+            @RequestBody long[] values
+    ) {
+        Instant start = Instant.now();
+        boolean[] results = primesService.testPrimality(values);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Tested {} values for primality in {} ms", values.length, durationMs);
+
+        return ResponseEntity.ok(new PrimalityResponse(values, results, Instant.now(), durationMs));
+    }
+
+    /**
+     * POST /api/v1/primes/batch
+     * Body: bounds and ranges. One sieve up to the largest of them; every item is a slice of it.
+     */
+    @Operation(
+            summary = "Get primes for several bounds and ranges with a single sieve",
+            description = """
+            Sieves once up to the largest bound or range end and returns one item per bound
+            (primes ≤ bound), then one per range (primes in [from, to]), in request order.
+            `countsOnly=true` leaves the primes out of JSON/XML items. With
+            `Accept: application/x-prime-batch` the items are delta-varint bodies in one binary frame
+            (see `PrimeBinaryCodec.decodeBatch`). At most `primes.batch.max-items` items; the largest bound
+            is limited by `primes.max-allowed`.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "One item per bound and range",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimeBatchResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimeBatchResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Batch too large or upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @PostMapping(value = "/batch", consumes = "application/json", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimeBatchResponse> batch(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Bounds and ranges", required = true)
+            @RequestBody PrimeBatchRequest request,
+            @Parameter(description = "Algorithm to use (optional)", example = "segmented")
+            @RequestParam(name = "algorithm", required = false) String algorithm
+    ) {
+        Instant start = Instant.now();
+        List<PrimesService.Slice> slices = slices(request);
+        List<PrimeArray> results = primesService.batch(slices, algorithm);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        List<PrimeBatchResponse.Item> items = new ArrayList<>(slices.size());
+        int sievedUpTo = 0;
+        for (int i = 0; i < slices.size(); i++) {
+            var slice = slices.get(i);
+            var primes = results.get(i);
+            items.add(new PrimeBatchResponse.Item(slice.from(), slice.to(), primes.size(), request.countsOnly() ? null : primes));
+            sievedUpTo = Math.max(sievedUpTo, slice.to());
+        }
+
+        log.info("Computed a batch of {} items up to {} in {} ms", items.size(), sievedUpTo, durationMs);
+
+        return ResponseEntity.ok(new PrimeBatchResponse(sievedUpTo, items, Instant.now(), durationMs));
+    }
+
+    /**
+     * POST /api/v1/primes/batch with Accept: application/x-prime-batch
+     * The same items as delta-varint bodies, framed back to back.
+     */
+    @Operation(
+            summary = "Get primes for several bounds and ranges as one binary frame",
+            description = """
+            Selected with `Accept: application/x-prime-batch`. A 12-byte header (magic `PRMK`, version 2,
+            item count) followed, per item, by an 8-byte `from`, a 4-byte length and a delta-varint body whose
+            `max` is the item's upper bound. `countsOnly` does not apply: the counts are in each body's header.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Framed delta-varint bodies",
+            content = @Content(mediaType = PrimeBinaryCodec.BATCH_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Batch too large or upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @PostMapping(value = "/batch", consumes = "application/json", produces = PrimeBinaryCodec.BATCH_VALUE)
+    public ResponseEntity<byte[]> batchBinary(
+            @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Bounds and ranges", required = true)
+            @RequestBody PrimeBatchRequest request,
+            @Parameter(description = "Algorithm to use (optional)", example = "segmented")
+            @RequestParam(name = "algorithm", required = false) String algorithm
+    ) {
+        Instant start = Instant.now();
+        List<PrimesService.Slice> slices = slices(request);
+        List<PrimeArray> results = primesService.batch(slices, algorithm);
+
+        long[] froms = new long[slices.size()];
+        List<byte[]> bodies = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            froms[i] = slices.get(i).from();
+            bodies.add(PrimeBinaryCodec.encodeDeltaVarint(results.get(i), slices.get(i).to()));
+        }
+        byte[] body = PrimeBinaryCodec.encodeBatch(froms, bodies);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Computed a batch of {} items as {} in {} ms (bytes={})",
+                slices.size(), PrimeBinaryCodec.BATCH_VALUE, durationMs, body.length);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PrimeBinaryCodec.BATCH_VALUE))
+                .body(body);
+    }
+
+    /** Bounds first, then ranges, each in request order. */
+    private static List<PrimesService.Slice> slices(PrimeBatchRequest request) {
+        List<PrimesService.Slice> slices = new ArrayList<>();
+        if (request.bounds() != null) {
+            for (Integer bound : request.bounds()) {
+                if (bound == null) throw new IllegalArgumentException("bounds must not contain null");
+                slices.add(new PrimesService.Slice(0, bound));
+            }
+        }
+        if (request.ranges() != null) {
+            for (PrimeBatchRequest.Range range : request.ranges()) {
+                if (range == null) throw new IllegalArgumentException("ranges must not contain null");
+                slices.add(new PrimesService.Slice(range.from(), range.to()));
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * GET /api/v1/primes/range?from=&to=
+     * Sieves only the requested window (base primes up to sqrt(to)), so paging through
+     * far-away ranges costs O(window + sqrt(to)) instead of O(to).
+     */
+    @Operation(
+            summary = "Get primes in the window [from, to]",
+            description = """
+            Returns all prime numbers p with from ≤ p ≤ to, using 64-bit bounds.
+            With a window-capable algorithm (indexed | segmented, the default) the limit is the window
+            width (`primes.range.max-window`) and `to` ≤ `primes.range.max-bound`. Other algorithms
+            sieve from 2 and are limited by `primes.max-allowed`.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Primes in the window",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimeRangeResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimeRangeResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Window or upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/range", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimeRangeResponse> getPrimesInRange(
+            @Parameter(description = "Lower bound, inclusive (≥ 0)", example = "1000000000000")
+            @RequestParam @Min(0) long from,
+            @Parameter(description = "Upper bound, inclusive (≥ from)", example = "1000000100000")
+            @RequestParam @Min(0) long to,
+            @Parameter(description = "Algorithm to use (optional)", example = "segmented")
+            @RequestParam(name = "algorithm", required = false) String algorithm
+    ) {
+        Instant start = Instant.now();
+        var primes = primesService.computeRange(from, to, algorithm);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Computed primes in [{}, {}] in {} ms (count={})", from, to, durationMs, primes.length);
+
+        var body = new PrimeRangeResponse(from, to, primes.length, primes, Instant.now(), durationMs);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * GET /api/v1/primes/page?offset=&limit=
+     * Primes by position rather than by value ("primes #1,000,000 to #1,010,000"). A cumulative
+     * count per segment locates the page, so only the segments it falls in are sieved.
+     */
+    @Operation(
+            summary = "Get primes by position in the ordered list of all primes",
+            description = """
+            Returns `limit` consecutive primes starting at the 0-based position `offset` (offset 0 is 2).
+            Page through everything by passing the returned `nextOffset` as the next `offset`.
+            Pages cost about the same at any depth once the count index reaches them; the first page
+            past the indexed part extends the index by counting primes up to it.
+            `limit` ≤ `primes.page.max-limit`, `offset + limit` ≤ `primes.page.max-index`.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "One page of primes",
+            content = {
+                    @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PrimePageResponse.class)),
+                    @Content(mediaType = "application/xml",
+                            schema = @Schema(implementation = PrimePageResponse.class))
+            }
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Page size or depth exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/page", produces = {"application/json", "application/xml"})
+    public ResponseEntity<PrimePageResponse> getPrimesPage(
+            @Parameter(description = "0-based position of the first prime (≥ 0)", example = "1000000")
+            @RequestParam(defaultValue = "0") @Min(0) long offset,
+            @Parameter(description = "Number of primes (≥ 1)", example = "10000")
+            @RequestParam(defaultValue = "1000") @Min(1) int limit
+    ) {
+        Instant start = Instant.now();
+        var primes = primesService.page(offset, limit);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Computed primes #{}..#{} in {} ms", offset, offset + primes.length - 1, durationMs);
+
+        var body = new PrimePageResponse(offset, limit, primes.length, offset + primes.length, primes,
+                Instant.now(), durationMs);
+        return ResponseEntity.ok(body);
+    }
+
+    /**
+     * GET /api/v1/primes/{max} with Accept: application/x-ndjson
+     * Streams one prime per line while segments are still being sieved, so the first bytes
+     * arrive before the sieve finishes and memory stays bounded by a few segments.
+     */
+    @Operation(
+            summary = "Stream primes up to and including max as NDJSON",
+            description = """
+            Selected with `Accept: application/x-ndjson`. Writes one prime per line, in ascending order,
+            segment by segment as the segmented sieve produces them. Allows a higher upper bound
+            (`primes.stream.max-allowed`) than the buffered JSON/XML response.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Newline-delimited primes",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(type = "string", example = "2\n3\n5\n7\n"))
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/{max}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPrimes(
+            @Parameter(description = "Upper bound (≥ 0)", example = "100")
+            @PathVariable @Min(0) int max,
+            HttpServletRequest request
+    ) {
+        primesService.guardStreamingUpperBound(max);
+        var permit = primesService.admitStream(max);
+        // the body may never run (async timeout, client gone before dispatch, executor rejection):
+        // completion of the async request releases the permit in every case
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(STREAM_PERMIT,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+
+        StreamingResponseBody body = out -> {
+            Instant start = Instant.now();
+            var writer = new NdjsonPrimeWriter(out);
+            try (permit) {
+                primesService.stream(max, writer);
+            } catch (UncheckedIOException e) {
+                throw e.getCause(); // client went away; let the container handle it
+            }
+            out.flush();
+            long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+            log.info("Streamed primes up to {} in {} ms (count={})", max, durationMs, writer.count());
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * GET /api/v1/primes/{max} with Accept: application/x-prime-delta-varint
+     * About one byte per prime instead of ~8 characters of JSON; see {@link PrimeBinaryCodec} for the layout.
+     */
+    @Operation(
+            summary = "Get primes up to and including max as delta-encoded varints",
+            description = """
+            Selected with `Accept: application/x-prime-delta-varint`. A 24-byte big-endian header
+            (magic `PRMV`, version, max, count) followed by `count` unsigned LEB128 varints, each the gap
+            to the previous prime (the first from 0). `PrimeBinaryCodec.decode` is a reference decoder.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Header + delta varints",
+            content = @Content(mediaType = PrimeBinaryCodec.DELTA_VARINT_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/{max}", produces = PrimeBinaryCodec.DELTA_VARINT_VALUE)
+    public ResponseEntity<byte[]> getPrimesDeltaVarint(
+            @Parameter(description = "Upper bound (≥ 0)", example = "100")
+            @PathVariable @Min(0) int max,
+            @Parameter(description = "Algorithm to use (optional)", example = "segmented")
+            @RequestParam(name = "algorithm", required = false) String algorithm
+    ) {
+        return binaryPrimes(max, algorithm, PrimeBinaryCodec.DELTA_VARINT_VALUE, PrimeBinaryCodec::encodeDeltaVarint);
+    }
+
+    /**
+     * GET /api/v1/primes/{max} with Accept: application/x-prime-bitmap
+     * The odd-only sieve itself: (max + 1) / 16 bytes, taken straight from the algorithm's bit array.
+     */
+    @Operation(
+            summary = "Get primes up to and including max as an odd-only sieve bitmap",
+            description = """
+            Selected with `Accept: application/x-prime-bitmap`. A 24-byte big-endian header
+            (magic `PRMB`, version, max, count) followed by one bit per odd number ≤ max:
+            bit `i & 7` (least significant first) of byte `i >>> 3` is set when 2i+1 is prime.
+            2 is implied when max ≥ 2. `PrimeBinaryCodec.decode` is a reference decoder.
+            """
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Header + odd-only bitmap",
+            content = @Content(mediaType = PrimeBinaryCodec.BITMAP_VALUE,
+                    schema = @Schema(type = "string", format = "binary"))
+    )
+    @ApiResponse(responseCode = "400", description = "Validation error")
+    @ApiResponse(responseCode = "422", description = "Upper bound exceeded")
+    @ApiResponse(responseCode = "503", description = "At capacity; retry after the Retry-After header")
+
+    @GetMapping(value = "/{max}", produces = PrimeBinaryCodec.BITMAP_VALUE)
+    public ResponseEntity<byte[]> getPrimesBitmap(
+            @Parameter(description = "Upper bound (≥ 0)", example = "100")
+            @PathVariable @Min(0) int max,
+            @Parameter(description = "Algorithm to use (optional)", example = "segmented")
+            @RequestParam(name = "algorithm", required = false) String algorithm
+    ) {
+        return binaryPrimes(max, algorithm, PrimeBinaryCodec.BITMAP_VALUE, PrimeBinaryCodec::encodeBitmap);
+    }
+
+    private ResponseEntity<byte[]> binaryPrimes(int max, String algorithm, String mediaType,
+                                                Function<OddBitmap, byte[]> encoder) {
+        primesService.guardUpperBound(max);
+
+        Instant start = Instant.now();
+        var bitmap = primesService.computeOddBitmap(max, algorithm);
+        byte[] body = encoder.apply(bitmap);
+        long durationMs = Duration.between(start, Instant.now()).toMillis();
+
+        log.info("Computed primes up to {} as {} in {} ms (count={}, bytes={})",
+                max, mediaType, durationMs, bitmap.count(), body.length);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(mediaType))
                 .body(body);
     }
 }
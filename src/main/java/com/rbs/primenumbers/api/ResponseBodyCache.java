@@ -0,0 +1,107 @@
+package com.rbs.primenumbers.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Fully serialized bodies of {@code GET /api/v1/primes/{max}?cache=true}, so a hot bound is answered with
+ * a byte copy instead of a sieve plus a Jackson pass.
+ *
+ * Entries are keyed by (max, algorithm, media type, encoding); a miss stores both the identity body and a
+ * pre-gzipped copy. Caffeine evicts by total bytes ({@code primes.response-cache.max-bytes}, 0 disables
+ * the cache) with its W-TinyLFU policy, so one-off bounds don't push out frequently requested ones.
+ * Hits, misses and evictions are published as {@code cache.*{cache=primes.response}}, plus the hit ratio
+ * and the bytes held.
+ */
+@Slf4j
+@Component
+public class ResponseBodyCache {
+
+    static final String IDENTITY = "identity";
+    static final String GZIP = "gzip";
+
+    /** Key, map entry and array headers, roughly. */
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /** Below this gzip framing outweighs what it saves, so only the identity body is kept. */
+    private static final int MIN_GZIP_BYTES = 256;
+
+    record Key(int max, String algorithm, String mediaType, String encoding) {}
+
+    /** One stored representation; the ETag is fixed by the key, so it can answer If-None-Match on its own. */
+    record Body(byte[] bytes, String mediaType, String encoding, String etag) {}
+
+    private final Cache<Key, Body> cache;
+
+    public ResponseBodyCache(@Value("${primes.response-cache.max-bytes:67108864}") long maxBytes,
+                             MeterRegistry registry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .weigher((Key key, Body body) -> body.bytes().length + ENTRY_OVERHEAD_BYTES)
+                .executor(Runnable::run) // evict on the writing thread: the byte budget holds after every put
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, cache, "primes.response");
+        Gauge.builder("primes.response-cache.hit-ratio", cache, c -> c.stats().hitRate())
+                .register(registry);
+        Gauge.builder("primes.response-cache.bytes", cache, c -> weightedSize(c))
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /** Strong ETag of one representation: same primes, different bytes, different tag. */
+    static String etag(int max, String algorithm, String mediaType, String encoding) {
+        String tag = "primes-%d-%s-v1".formatted(max, algorithm);
+        if (!mediaType.endsWith("/json")) tag += "-" + mediaType.substring(mediaType.indexOf('/') + 1);
+        if (GZIP.equals(encoding)) tag += "-" + GZIP;
+        return "\"" + tag + "\"";
+    }
+
+    /** The stored body in the preferred encoding (falling back to identity), or null on a miss. */
+    Body get(int max, String algorithm, String mediaType, boolean acceptsGzip) {
+        if (acceptsGzip) {
+            Body gzipped = cache.getIfPresent(new Key(max, algorithm, mediaType, GZIP));
+            if (gzipped != null) return gzipped;
+        }
+        return cache.getIfPresent(new Key(max, algorithm, mediaType, IDENTITY));
+    }
+
+    /** Stores a freshly serialized body (and its gzipped copy) and returns the representation to send. */
+    Body put(int max, String algorithm, String mediaType, byte[] identity, boolean acceptsGzip) {
+        Body plain = new Body(identity, mediaType, IDENTITY, etag(max, algorithm, mediaType, IDENTITY));
+        cache.put(new Key(max, algorithm, mediaType, IDENTITY), plain);
+        if (identity.length < MIN_GZIP_BYTES) return plain;
+
+        Body gzipped = new Body(gzip(identity), mediaType, GZIP, etag(max, algorithm, mediaType, GZIP));
+        cache.put(new Key(max, algorithm, mediaType, GZIP), gzipped);
+        log.debug("Cached {} body for max={} algorithm={}: {} B, gzip {} B",
+                mediaType, max, algorithm, identity.length, gzipped.bytes().length);
+        return acceptsGzip ? gzipped : plain;
+    }
+
+    private static byte[] gzip(byte[] body) {
+        var out = new ByteArrayOutputStream(body.length / 3);
+        try (var gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory streams don't fail
+        }
+        return out.toByteArray();
+    }
+
+    private static double weightedSize(Cache<Key, Body> cache) {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+    }
+}
@@ -0,0 +1,27 @@
+package com.rbs.primenumbers.api;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds a {@code Server-Timing} header value (W3C Server Timing) from phase durations in nanoseconds,
+ * e.g. {@code base;dur=0.12, sieve;dur=3.40, assembly;dur=0.25, compute;dur=3.81}.
+ */
+final class ServerTiming {
+
+    static final String HEADER = "Server-Timing";
+
+    private ServerTiming() {}
+
+    static String of(Map<String, Long> phases, long totalNanos) {
+        StringBuilder sb = new StringBuilder();
+        phases.forEach((phase, nanos) -> append(sb, phase, nanos));
+        append(sb, "compute", totalNanos);
+        return sb.toString();
+    }
+
+    private static void append(StringBuilder sb, String name, long nanos) {
+        if (!sb.isEmpty()) sb.append(", ");
+        sb.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0));
+    }
+}
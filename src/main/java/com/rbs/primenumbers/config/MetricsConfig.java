@@ -0,0 +1,54 @@
+package com.rbs.primenumbers.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbs.primenumbers.domain.ComputeMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Replaces Boot's JSON and XML converters with subclasses that time each body write
+ * ({@code primes.serialization}). Serialization runs after the headers are committed,
+ * so this phase is reported as a metric only, not in the Server-Timing header.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   ComputeMetrics metrics) {
+        return new MappingJackson2HttpMessageConverter(objectMapper) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    metrics.recordSerialization(object.getClass().getSimpleName(), "json", System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    @Bean
+    public MappingJackson2XmlHttpMessageConverter mappingJackson2XmlHttpMessageConverter(Jackson2ObjectMapperBuilder builder,
+                                                                                         ComputeMetrics metrics) {
+        return new MappingJackson2XmlHttpMessageConverter(builder.createXmlMapper(true).build()) {
+            @Override
+            protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+                long start = System.nanoTime();
+                try {
+                    super.writeInternal(object, type, outputMessage);
+                } finally {
+                    metrics.recordSerialization(object.getClass().getSimpleName(), "xml", System.nanoTime() - start);
+                }
+            }
+        };
+    }
+}
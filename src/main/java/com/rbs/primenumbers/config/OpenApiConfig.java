@@ -1,12 +1,23 @@
 package com.rbs.primenumbers.config;
 
+import com.rbs.primenumbers.algorithm.PrimeArray;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.IntegerSchema;
+import org.springdoc.core.utils.SpringDocUtils;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class OpenApiConfig {
+
+    static {
+        // PrimeArray is serialized as a plain JSON array of ints; document it that way
+        SpringDocUtils.getConfig().replaceWithSchema(PrimeArray.class,
+                new ArraySchema().items(new IntegerSchema().format("int32")));
+    }
+
     @Bean
     public OpenAPI primesOpenAPI() {
         return new OpenAPI()
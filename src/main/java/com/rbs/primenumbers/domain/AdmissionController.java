@@ -0,0 +1,238 @@
+package com.rbs.primenumbers.domain;
+
+import com.rbs.primenumbers.algorithm.PrimeAlgorithm;
+import com.rbs.primenumbers.algorithm.SievePool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Capacity model for prime computations: every request is priced in memory and CPU before it runs,
+ * and only as much work as fits both budgets runs at once.
+ *
+ * A request that doesn't fit waits up to {@code primes.admission.queue-timeout-ms} for running work
+ * to release capacity, then fails with {@link CapacityExceededException} (503 + Retry-After).
+ * A request bigger than a whole budget is charged the full budget, so it runs, alone, once things are idle.
+ *
+ * Costs are estimates, not measurements: CPU is counted in integers sieved, memory in bytes of result
+ * and working arrays.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    /** Rough single-core sieve throughput, only used to suggest a Retry-After. */
+    private static final long NUMBERS_PER_CORE_SECOND = 200_000_000L;
+
+    /** Working memory of one segment being sieved (bitmap plus its primes). */
+    private static final long SEGMENT_WORKING_BYTES = 256 * 1024;
+
+    public record Cost(long memoryBytes, long cpuUnits) {
+        public static final Cost FREE = new Cost(0, 0);
+    }
+
+    @Getter
+    public static class CapacityExceededException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public CapacityExceededException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+
+    /**
+     * Capacity held by one admitted request; closing it hands the capacity back. Closing again, from any
+     * thread, does nothing, so a streamed response can close it both from its body and on completion.
+     */
+    public final class Permit implements AutoCloseable {
+        private final Cost cost;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Cost cost) { this.cost = cost; }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) release(cost);
+        }
+    }
+
+    private final long memoryBudget;
+    private final long cpuBudget;
+    private final long queueTimeoutNanos;
+    private final int parallelism;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long memoryInUse;
+    private long cpuInUse;
+
+    private final Timer waitTimer;
+    private final MeterRegistry registry;
+
+    public AdmissionController(@Value("${primes.admission.memory-budget-bytes:0}") long memoryBudget,
+                               @Value("${primes.admission.cpu-budget:0}") long cpuBudget,
+                               @Value("${primes.admission.queue-timeout-ms:1000}") long queueTimeoutMs,
+                               SievePool sievePool,
+                               MeterRegistry registry) {
+        this.parallelism = sievePool.parallelism();
+        // Defaults: a quarter of the heap, and about half a second of sieving per worker
+        this.memoryBudget = memoryBudget > 0 ? memoryBudget : Runtime.getRuntime().maxMemory() / 4;
+        this.cpuBudget = cpuBudget > 0 ? cpuBudget : parallelism * NUMBERS_PER_CORE_SECOND / 2;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMs);
+        this.registry = registry;
+
+        this.waitTimer = Timer.builder("primes.admission.wait")
+                .description("Time requests spent queued for capacity")
+                .register(registry);
+        Gauge.builder("primes.admission.memory-in-use", this, a -> a.inUse(true)).baseUnit("bytes").register(registry);
+        Gauge.builder("primes.admission.cpu-in-use", this, a -> a.inUse(false)).register(registry);
+    }
+
+    // --- pricing ---
+
+    /** Sieving everything up to max (full result array). */
+    public Cost sieveCost(PrimeAlgorithm algo, long max) {
+        if (max < 2 || algo.isCached((int) Math.min(max, Integer.MAX_VALUE))) return Cost.FREE;
+        long result = Integer.BYTES * approxPrimeCount(0, max);
+        long working = algo.sievesWindowOnly()
+                ? result + parallelism * SEGMENT_WORKING_BYTES // per-segment arrays, then the concatenation
+                : algo.workingBytes(max);                      // e.g. one bit per integer, all at once
+        return new Cost(result + working, algo.numbersToSieve(max));
+    }
+
+    /** Sieving [from, to] into a long[]; window-only algorithms skip everything below from. */
+    public Cost rangeCost(PrimeAlgorithm algo, long from, long to) {
+        if (!algo.sievesWindowOnly()) {
+            Cost full = sieveCost(algo, to);
+            return new Cost(full.memoryBytes() + Long.BYTES * approxPrimeCount(from, to), full.cpuUnits());
+        }
+        long width = Math.max(0, to - Math.max(0, from) + 1);
+        long result = Long.BYTES * approxPrimeCount(from, to);
+        // every worker files the base primes up to sqrt(to) into buckets, 12 bytes each, for the call
+        long buckets = parallelism * 3L * Integer.BYTES * approxPrimeCount(0, (long) Math.sqrt((double) to));
+        return new Cost(2 * result + parallelism * SEGMENT_WORKING_BYTES + buckets, width + (long) Math.sqrt((double) to));
+    }
+
+    /**
+     * A batch: one sieve up to its largest bound, plus each item's own output. Items may overlap and
+     * every one of them is written out, so their outputs are summed rather than bounded by the sieve.
+     */
+    public Cost batchCost(PrimeAlgorithm algo, long max, List<PrimesService.Slice> slices) {
+        Cost sieve = sieveCost(algo, max);
+        long output = 0;
+        for (PrimesService.Slice slice : slices) {
+            output += Long.BYTES * approxPrimeCount(slice.from(), slice.to());
+        }
+        return new Cost(sieve.memoryBytes() + output, sieve.cpuUnits());
+    }
+
+    /** Streaming keeps only one wave of segments in memory but still sieves everything up to max. */
+    public Cost streamCost(long max) {
+        return new Cost(2L * parallelism * SEGMENT_WORKING_BYTES, max);
+    }
+
+    /** Aggregates fold each segment as it is sieved: a few segments of memory, every number up to max sieved. */
+    public Cost statsCost(long max) {
+        return new Cost(2L * parallelism * SEGMENT_WORKING_BYTES, max);
+    }
+
+    /** A page by position: counting (not keeping) primes up to it, then one window of a couple of segments. */
+    public Cost pageCost(long numbersToSieve, int limit) {
+        return new Cost(2L * parallelism * SEGMENT_WORKING_BYTES + 2L * Long.BYTES * limit, numbersToSieve);
+    }
+
+    /** n-th prime: pi(low) by Lucy_Hedgehog, then popcounting the bracket [low, high] segment by segment. */
+    public Cost nthCost(long low, long high) {
+        Cost below = countCost(low);
+        return new Cost(below.memoryBytes() + 2L * parallelism * SEGMENT_WORKING_BYTES,
+                below.cpuUnits() + (high - low + 1));
+    }
+
+    /** pi(x) by Lucy_Hedgehog: two long tables of ~sqrt(x) entries, O(x^(3/4)) work. */
+    public Cost countCost(long x) {
+        long root = (long) Math.sqrt((double) x);
+        return new Cost(2 * Long.BYTES * root, (long) Math.pow(x, 0.75));
+    }
+
+    // --- admission ---
+
+    /**
+     * Blocks until the cost fits both budgets (or the queue timeout passes) and reserves it.
+     * The returned permit must be closed when the work is done.
+     */
+    public Permit admit(Cost requested) {
+        Cost cost = new Cost(Math.min(requested.memoryBytes(), memoryBudget), Math.min(requested.cpuUnits(), cpuBudget));
+        if (cost.equals(Cost.FREE)) return new Permit(cost);
+
+        long start = System.nanoTime();
+        long deadline = start + queueTimeoutNanos;
+        lock.lock();
+        try {
+            while (memoryInUse + cost.memoryBytes() > memoryBudget || cpuInUse + cost.cpuUnits() > cpuBudget) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) throw reject(requested);
+                try {
+                    released.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(requested);
+                }
+            }
+            memoryInUse += cost.memoryBytes();
+            cpuInUse += cost.cpuUnits();
+        } finally {
+            lock.unlock();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return new Permit(cost);
+    }
+
+    private void release(Cost cost) {
+        lock.lock();
+        try {
+            memoryInUse -= cost.memoryBytes();
+            cpuInUse -= cost.cpuUnits();
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Called with the lock held. */
+    private CapacityExceededException reject(Cost requested) {
+        registry.counter("primes.admission.rejected").increment();
+        // Assume running work drains at full pool speed
+        long retryAfter = Math.max(1, (cpuInUse + parallelism * NUMBERS_PER_CORE_SECOND - 1) / (parallelism * NUMBERS_PER_CORE_SECOND));
+        log.info("Rejecting request (memory={} B, cpu={}): in use memory={}/{} B, cpu={}/{}",
+                requested.memoryBytes(), requested.cpuUnits(), memoryInUse, memoryBudget, cpuInUse, cpuBudget);
+        return new CapacityExceededException("Server is at capacity; retry in " + retryAfter + " s", retryAfter);
+    }
+
+    private double inUse(boolean memory) {
+        lock.lock();
+        try {
+            return memory ? memoryInUse : cpuInUse;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Upper-leaning estimate of the number of primes in [from, to]. */
+    static long approxPrimeCount(long from, long to) {
+        long width = to - Math.max(0, from) + 1;
+        if (width <= 0) return 0;
+        double ln = Math.log(Math.max(to, 17));
+        return (long) (width / (ln - 1.1)) + 8;
+    }
+}
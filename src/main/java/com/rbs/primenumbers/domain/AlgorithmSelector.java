@@ -0,0 +1,128 @@
+package com.rbs.primenumbers.domain;
+
+import com.rbs.primenumbers.algorithm.PrimeAlgorithm;
+import com.rbs.primenumbers.algorithm.SievePool;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the algorithm for {@code algorithm=auto}: the candidate with the lowest expected latency for the
+ * request's size bucket (decade of max, or of the window width for ranges), learned from live timings.
+ *
+ * Each (kind, algorithm, bucket) keeps an exponentially weighted moving average of its latency. Samples
+ * of parallel algorithms are normalized by how busy the {@link SievePool} was when they started, and
+ * their estimate is scaled back up by how busy it is now: with every worker taken a parallel sieve gets
+ * a single core's worth of throughput, with a one-core pool it never gets more.
+ *
+ * Candidates without enough samples in a bucket are tried first; after that a small fraction of requests
+ * ({@code primes.auto.explore-rate}) go to a random other candidate, so estimates follow changes in load,
+ * JIT state or caches.
+ */
+@Slf4j
+@Component
+public class AlgorithmSelector {
+
+    public static final String AUTO = "auto";
+
+    /** Samples per bucket before a candidate is judged on its average alone. */
+    static final int MIN_SAMPLES = 3;
+
+    private final double exploreRate;
+    private final double alpha;
+    private final SievePool sievePool;
+    private final MeterRegistry registry;
+
+    private final Map<Key, Estimate> estimates = new ConcurrentHashMap<>();
+
+    private record Key(String kind, String algorithm, String bucket) {}
+
+    /** EWMA of latency at an idle pool, in nanoseconds. */
+    private static final class Estimate {
+        private double nanos;
+        private long samples;
+
+        synchronized void add(double sample, double alpha) {
+            nanos = samples == 0 ? sample : nanos + alpha * (sample - nanos);
+            samples++;
+        }
+
+        synchronized double nanos() { return nanos; }
+
+        synchronized long samples() { return samples; }
+    }
+
+    public AlgorithmSelector(@Value("${primes.auto.explore-rate:0.05}") double exploreRate,
+                             @Value("${primes.auto.smoothing:0.2}") double alpha,
+                             SievePool sievePool,
+                             MeterRegistry registry) {
+        this.exploreRate = exploreRate;
+        this.alpha = alpha;
+        this.sievePool = sievePool;
+        this.registry = registry;
+    }
+
+    /** The candidate expected to answer this request fastest under the current pool load. */
+    public PrimeAlgorithm choose(String kind, long size, List<PrimeAlgorithm> candidates) {
+        return choose(kind, size, candidates, busyWorkers());
+    }
+
+    PrimeAlgorithm choose(String kind, long size, List<PrimeAlgorithm> candidates, int busyWorkers) {
+        String bucket = ComputeMetrics.bucket(size);
+
+        PrimeAlgorithm best = null;
+        double bestNanos = Double.MAX_VALUE;
+        for (PrimeAlgorithm candidate : candidates) {
+            Estimate e = estimates.get(new Key(kind, candidate.name(), bucket));
+            if (e == null || e.samples() < MIN_SAMPLES) {
+                return chosen(candidate, bucket, "warmup");
+            }
+            double expected = e.nanos() * slowdown(candidate, busyWorkers);
+            if (expected < bestNanos) {
+                best = candidate;
+                bestNanos = expected;
+            }
+        }
+
+        if (candidates.size() > 1 && ThreadLocalRandom.current().nextDouble() < exploreRate) {
+            PrimeAlgorithm other = candidates.get(ThreadLocalRandom.current().nextInt(candidates.size() - 1));
+            return chosen(other == best ? candidates.get(candidates.size() - 1) : other, bucket, "explore");
+        }
+        return chosen(best, bucket, "exploit");
+    }
+
+    /** Feeds one measured computation back; {@code busyWorkers} is the pool load when it started. */
+    public void record(String kind, PrimeAlgorithm algorithm, long size, long nanos, int busyWorkers) {
+        double normalized = nanos / slowdown(algorithm, busyWorkers);
+        estimates.computeIfAbsent(new Key(kind, algorithm.name(), ComputeMetrics.bucket(size)), k -> new Estimate())
+                .add(normalized, alpha);
+    }
+
+    /** Pool workers currently running tasks. */
+    public int busyWorkers() {
+        return sievePool.pool().getActiveThreadCount();
+    }
+
+    /**
+     * How much slower than on an idle pool a computation runs now: a parallel algorithm gets the idle
+     * workers (at least one) instead of all of them; sequential ones run on the request thread.
+     */
+    double slowdown(PrimeAlgorithm algorithm, int busyWorkers) {
+        if (!algorithm.parallel()) return 1;
+        int workers = sievePool.parallelism();
+        return (double) workers / Math.max(1, workers - busyWorkers);
+    }
+
+    private PrimeAlgorithm chosen(PrimeAlgorithm algorithm, String bucket, String reason) {
+        registry.counter("primes.auto.choice", "algorithm", algorithm.name(), "bucket", bucket, "reason", reason)
+                .increment();
+        log.debug("auto picked '{}' for bucket {} ({})", algorithm.name(), bucket, reason);
+        return algorithm;
+    }
+}
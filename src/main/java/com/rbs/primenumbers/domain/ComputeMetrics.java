@@ -0,0 +1,98 @@
+package com.rbs.primenumbers.domain;
+
+import com.rbs.primenumbers.algorithm.SievePool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation of the compute path.
+ *
+ * <ul>
+ *   <li>{@code primes.compute} – latency histogram, tagged algorithm / cache (hit|miss) / bucket (decade of max)</li>
+ *   <li>{@code primes.compute.phase} – time per phase (base, sieve, assembly), tagged algorithm / phase</li>
+ *   <li>{@code primes.compute.in-flight} – computations currently running</li>
+ *   <li>{@code primes.compute.coalesced} – requests that joined an identical computation already running</li>
+ *   <li>{@code primes.forkjoin.*} – activity of the {@link SievePool} the parallel sieves run on</li>
+ * </ul>
+ */
+@Component
+public class ComputeMetrics {
+
+    private final MeterRegistry registry;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ComputeMetrics(MeterRegistry registry, SievePool sievePool) {
+        this.registry = registry;
+
+        Gauge.builder("primes.compute.in-flight", inFlight, AtomicInteger::get)
+                .description("Prime computations currently running")
+                .register(registry);
+
+        ForkJoinPool pool = sievePool.pool();
+        Gauge.builder("primes.forkjoin.active-threads", pool, ForkJoinPool::getActiveThreadCount)
+                .register(registry);
+        Gauge.builder("primes.forkjoin.queued-tasks", pool, ForkJoinPool::getQueuedTaskCount)
+                .register(registry);
+        Gauge.builder("primes.forkjoin.saturation", pool, p -> (double) p.getActiveThreadCount() / p.getParallelism())
+                .description("Active threads / parallelism of the sieve pool")
+                .register(registry);
+    }
+
+    /** Runs one computation, counting it as in flight and timing it. */
+    public <T> T timeCompute(String algorithm, boolean cacheHit, long max, Supplier<T> computation) {
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return computation.get();
+        } finally {
+            inFlight.decrementAndGet();
+            Timer.builder("primes.compute")
+                    .description("Time to compute the primes for one request")
+                    .tag("algorithm", algorithm)
+                    .tag("cache", cacheHit ? "hit" : "miss")
+                    .tag("bucket", bucket(max))
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** A request that waited for an identical in-flight computation instead of running its own. */
+    public void recordCoalesced(String algorithm) {
+        registry.counter("primes.compute.coalesced", "algorithm", algorithm).increment();
+    }
+
+    /** Publishes the phase durations (nanoseconds) captured by {@link com.rbs.primenumbers.algorithm.ComputePhases}. */
+    public void recordPhases(String algorithm, Map<String, Long> phases) {
+        phases.forEach((phase, nanos) -> Timer.builder("primes.compute.phase")
+                .tag("algorithm", algorithm)
+                .tag("phase", phase)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    /** Time spent writing a response body of the given type. */
+    public void recordSerialization(String type, String mediaType, long nanos) {
+        Timer.builder("primes.serialization")
+                .description("Time to serialize a response body")
+                .tag("type", type)
+                .tag("media-type", mediaType)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** Decade of max ("1e0" .. "1e9"), keeping tag cardinality small. */
+    static String bucket(long max) {
+        int exponent = 0;
+        for (long n = max; n >= 10; n /= 10) exponent++;
+        return "1e" + exponent;
+    }
+}
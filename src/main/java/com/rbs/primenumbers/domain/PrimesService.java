@@ -1,36 +1,155 @@
 package com.rbs.primenumbers.domain;
 
+import com.rbs.primenumbers.algorithm.ComputePhases;
+import com.rbs.primenumbers.algorithm.NthPrimeFinder;
+import com.rbs.primenumbers.algorithm.OddBitmap;
+import com.rbs.primenumbers.algorithm.PrimalityTester;
 import com.rbs.primenumbers.algorithm.PrimeAlgorithm;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.PrimeCounter;
+import com.rbs.primenumbers.algorithm.PrimeStats;
+import com.rbs.primenumbers.algorithm.SegmentedParallelSieveAlgorithm;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PrimesService {
 
-    // Inject all algorithm beans: key = bean name ("simple", "segmented"), value = instance
+    // Inject all algorithm beans: key = bean name ("simple", "segmented", "wheel", "indexed", "linear", "atkin"), value = instance
     private final Map<String, PrimeAlgorithm> algorithms;
 
+    // Streaming always goes through the segmented sieve: it is the one that can emit in order, per segment
+    private final SegmentedParallelSieveAlgorithm segmented;
+
+    private final PrimeCounter primeCounter;
+
+    private final NthPrimeFinder nthPrimeFinder;
+
+    private final PrimalityTester primalityTester;
+
+    private final ComputeMetrics metrics;
+
+    private final AdmissionController admission;
+
+    private final AlgorithmSelector selector;
+
     // Limits and defaults from config
     @Value("${primes.max-allowed:1000000}")
     private int maxAllowed;
 
-    @Value("${primes.algorithm.default:simple}")
+    // Streaming keeps memory bounded by a few segments, so it can afford a much higher ceiling
+    @Value("${primes.stream.max-allowed:100000000}")
+    private int streamMaxAllowed;
+
+    // Range requests are bounded by how many numbers the window spans, not by how large 'to' is
+    @Value("${primes.range.max-window:10000000}")
+    private int maxRangeWindow;
+
+    // Base primes up to sqrt(max-bound) are cached in memory: 10^16 needs ~23 MB, 10^18 ~200 MB
+    @Value("${primes.range.max-bound:10000000000000000}")
+    private long maxRangeBound;
+
+    // pi(x) runs in O(x^(3/4)): 10^12 takes ~2 s on one core, 10^13 ~10 s
+    @Value("${primes.count.max-allowed:1000000000000}")
+    private long countMaxAllowed;
+
+    // Paging by position counts every prime before the page once; 10^8 primes reach just past 2 * 10^9
+    @Value("${primes.page.max-index:100000000}")
+    private long maxPageIndex;
+
+    @Value("${primes.page.max-limit:10000}")
+    private int maxPageLimit;
+
+    // The bracket around p_n is ~n / (2 ln n) wide: 10^9 popcounts ~10^8 integers after pi(2.2 * 10^10)
+    @Value("${primes.nth.max-allowed:1000000000}")
+    private long nthMaxAllowed;
+
+    // Aggregates keep a few segments in memory at any bound; the limit is sieving time (10^9 ~ 2.5 s on one core)
+    @Value("${primes.stats.max-allowed:10000000000}")
+    private long statsMaxAllowed;
+
+    @Value("${primes.stats.max-moduli:8}")
+    private int maxStatsModuli;
+
+    @Value("${primes.stats.max-modulus:1000}")
+    private int maxStatsModulus;
+
+    @Value("${primes.test.max-batch:10000}")
+    private int maxTestBatch;
+
+    @Value("${primes.batch.max-items:100}")
+    private int maxBatchItems;
+
+    @Value("${primes.algorithm.default:indexed}")
     private String defaultAlgorithmName;
 
+    // What algorithm=auto chooses from; ranges only consider the window-capable ones
+    @Value("${primes.auto.candidates:simple,wheel,segmented,indexed}")
+    private List<String> autoCandidates;
+
+    // Single flight: concurrent identical computations share the first caller's future
+    private final Map<InFlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private record InFlightKey(String kind, String algorithm, int max) {}
+
+    /**
+     * Bounds past {@link SegmentedParallelSieveAlgorithm#MAX_BOUND} would need base primes beyond int,
+     * so they fail here at startup rather than as a 500 on the first request that reaches them.
+     */
+    @PostConstruct
+    void checkLimits() {
+        checkLimit("primes.range.max-bound", maxRangeBound);
+        checkLimit("primes.stats.max-allowed", statsMaxAllowed);
+        checkLimit("primes.count.max-allowed", countMaxAllowed);
+    }
+
+    private static void checkLimit(String property, long value) {
+        if (value > SegmentedParallelSieveAlgorithm.MAX_BOUND) {
+            throw new IllegalStateException(property + " must be ≤ " + SegmentedParallelSieveAlgorithm.MAX_BOUND
+                    + " (sqrt must fit an int), got " + value);
+        }
+    }
+
+    /** Aggregate names accepted by {@link #stats}, besides {@code mod:k}; also the default selection. */
+    public static final List<String> STATS_METRICS = List.of("sum", "twins", "maxGap");
+
+    /** The requested aggregate names (without the moduli) and their values; the count is always there. */
+    public record Stats(Set<String> metrics, PrimeStats values) {}
+
+    /** One item of a batch: the primes in [from, to]. */
+    public record Slice(int from, int to) {}
+
     public static class UpperBoundExceededException extends RuntimeException {
         public UpperBoundExceededException(String message) { super(message); }
     }
 
     public void guardUpperBound(int max) {
-        if (max > maxAllowed) {
-            throw new UpperBoundExceededException("max must be ≤ " + maxAllowed);
+        guardUpperBound(max, maxAllowed);
+    }
+
+    public void guardStreamingUpperBound(int max) {
+        guardUpperBound(max, streamMaxAllowed);
+    }
+
+    private static void guardUpperBound(long max, long limit) {
+        if (max > limit) {
+            throw new UpperBoundExceededException("max must be ≤ " + limit);
         }
         if (max < 0) {
             throw new IllegalArgumentException("max must be ≥ 0");
@@ -39,18 +158,294 @@ public class PrimesService {
 
 
     /** Compute using a specific algorithm name or fallback to default. */
-    public List<Integer> compute(int max, String algorithmName) {
+    public PrimeArray compute(int max, String algorithmName) {
+        PrimeAlgorithm algo = resolve(algorithmName, "array", max);
+
+        log.debug("Using algorithm='{}' for max={}", algo.name(), max);
+        return coalesced("array", algo, max, admission.sieveCost(algo, max), () -> algo.computeArrayUpTo(max));
+    }
+
+    /** Compute the primes ≤ max as an odd-only bitmap, for the binary response formats. */
+    public OddBitmap computeOddBitmap(int max, String algorithmName) {
+        PrimeAlgorithm algo = resolve(algorithmName, "bitmap", max);
+
+        log.debug("Using algorithm='{}' for bitmap up to max={}", algo.name(), max);
+        return coalesced("bitmap", algo, max, admission.sieveCost(algo, max), () -> algo.computeOddBitmapUpTo(max));
+    }
+
+    /**
+     * Answers every slice from one sieve up to the largest bound among them, instead of one sieve per slice.
+     * The sieve goes through the same guard and single-flight path as {@link #compute}; admission charges
+     * it once plus the output of every item, since a batch can list the same large range many times.
+     */
+    public List<PrimeArray> batch(List<Slice> slices, String algorithmName) {
+        if (slices == null || slices.isEmpty()) {
+            throw new IllegalArgumentException("batch must contain at least one bound or range");
+        }
+        if (slices.size() > maxBatchItems) {
+            throw new UpperBoundExceededException("batch size must be ≤ " + maxBatchItems);
+        }
+
+        for (Slice slice : slices) {
+            if (slice.from() < 0 || slice.to() < 0) {
+                throw new IllegalArgumentException("bounds must be ≥ 0");
+            }
+            if (slice.from() > slice.to()) {
+                throw new IllegalArgumentException("from must be ≤ to");
+            }
+        }
+        int max = slices.stream().mapToInt(Slice::to).max().getAsInt();
+        guardUpperBound(max);
+
+        PrimeAlgorithm algo = resolve(algorithmName, "array", max);
+        log.debug("Using algorithm='{}' for a batch of {} up to max={}", algo.name(), slices.size(), max);
+        // The permit covers the sieve as well as every item, so the single-flight leader takes no second one
+        try (var permit = admission.admit(admission.batchCost(algo, max, slices))) {
+            PrimeArray all = coalesced("array", algo, max, AdmissionController.Cost.FREE, () -> algo.computeArrayUpTo(max));
+            return slices.stream().map(slice -> all.between(slice.from(), slice.to())).toList();
+        }
+    }
+
+    /**
+     * Runs the computation once per (kind, algorithm, max) at a time: callers arriving while it runs
+     * wait for the same result (or failure) instead of sieving again. The entry is removed as soon as
+     * the leader finishes, so later calls compute afresh. Cached answers skip the map entirely.
+     * Only the leader goes through admission control; joining a running computation costs nothing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesced(String kind, PrimeAlgorithm algo, int max, AdmissionController.Cost cost,
+                            Supplier<T> computation) {
+        if (algo.isCached(max)) return timed(kind, algo, max, computation);
+
+        var key = new InFlightKey(kind, algo.name(), max);
+        var mine = new CompletableFuture<Object>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            metrics.recordCoalesced(algo.name());
+            log.debug("Joining in-flight computation {}", key);
+            try {
+                return (T) leader.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) throw cause;
+                if (e.getCause() instanceof Error cause) throw cause;
+                throw e;
+            }
+        }
+
+        try (var permit = admission.admit(cost)) {
+            T result = timed(kind, algo, max, computation);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private <T> T timed(String kind, PrimeAlgorithm algo, long max, Supplier<T> computation) {
+        int busy = selector.busyWorkers();
+        long start = System.nanoTime();
+        try (var phases = ComputePhases.open()) {
+            boolean cached = algo.isCached((int) Math.min(max, Integer.MAX_VALUE));
+            T result = metrics.timeCompute(algo.name(), cached, max, computation);
+            metrics.recordPhases(algo.name(), phases.phases());
+            selector.record(kind, algo, max, System.nanoTime() - start, busy);
+            return result;
+        }
+    }
+
+    /**
+     * Compute primes in [from, to] using a specific algorithm name or fallback to default.
+     * Window-only algorithms are limited by window width; the rest sieve from 2 and are limited by max-allowed.
+     */
+    public long[] computeRange(long from, long to, String algorithmName) {
+        if (from < 0 || to < 0) {
+            throw new IllegalArgumentException("from and to must be ≥ 0");
+        }
+        if (from > to) {
+            throw new IllegalArgumentException("from must be ≤ to");
+        }
+
+        if (to > maxRangeBound) {
+            throw new UpperBoundExceededException("to must be ≤ " + maxRangeBound);
+        }
+
+        PrimeAlgorithm algo = resolve(algorithmName, "range", to - from + 1);
+        if (algo.sievesWindowOnly()) {
+            if (to - from + 1 > maxRangeWindow) {
+                throw new UpperBoundExceededException("range width (to - from + 1) must be ≤ " + maxRangeWindow);
+            }
+        } else {
+            guardUpperBound(to, maxAllowed);
+        }
+
+        log.debug("Using algorithm='{}' for range [{}, {}]", algo.name(), from, to);
+        try (var permit = admission.admit(admission.rangeCost(algo, from, to))) {
+            int busy = selector.busyWorkers();
+            long start = System.nanoTime();
+            long[] primes = algo.computeRange(from, to);
+            selector.record("range", algo, to - from + 1, System.nanoTime() - start, busy);
+            return primes;
+        }
+    }
+
+    /**
+     * The primes at 0-based positions [offset, offset + limit) of the ascending list of all primes.
+     * Served by the segmented sieve's count index, so a page costs about the same at any depth.
+     */
+    public long[] page(long offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must be ≥ 0");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be ≥ 1");
+        }
+        if (limit > maxPageLimit) {
+            throw new UpperBoundExceededException("limit must be ≤ " + maxPageLimit);
+        }
+        if (offset > maxPageIndex - limit) {
+            throw new UpperBoundExceededException("offset + limit must be ≤ " + maxPageIndex);
+        }
+
+        log.debug("Paging primes at offset={} limit={}", offset, limit);
+        var cost = admission.pageCost(segmented.numbersToSieveForPage(offset, limit), limit);
+        try (var permit = admission.admit(cost)) {
+            return segmented.primesByIndex(offset, limit);
+        }
+    }
+
+    /** The n-th prime (n ≥ 1, the first is 2), without listing the primes before it. */
+    public long nthPrime(long n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be ≥ 1");
+        }
+        if (n > nthMaxAllowed) {
+            throw new UpperBoundExceededException("n must be ≤ " + nthMaxAllowed);
+        }
+
+        log.debug("Finding prime number n={}", n);
+        var cost = admission.nthCost(NthPrimeFinder.lowerBound(n), NthPrimeFinder.upperBound(n));
+        try (var permit = admission.admit(cost)) {
+            return nthPrimeFinder.nth(n);
+        }
+    }
+
+    /** Number of primes ≤ max, without sieving or building a list. */
+    public long countPrimes(long max) {
+        guardUpperBound(max, countMaxAllowed);
+
+        log.debug("Counting primes up to max={}", max);
+        try (var permit = admission.admit(admission.countCost(max))) {
+            return primeCounter.countUpTo(max);
+        }
+    }
+
+    /**
+     * Aggregates over the primes ≤ max (sum, twin pairs, largest gap, counts per residue mod k), folded into
+     * per-segment partials by the segmented sieve and merged, so no list is built at any bound.
+     * metrics is a comma-separated selection of {@link #STATS_METRICS} and {@code mod:k}; blank means all of
+     * {@link #STATS_METRICS}.
+     */
+    public Stats stats(long max, String metrics) {
+        guardUpperBound(max, statsMaxAllowed);
+
+        Set<String> names = new LinkedHashSet<>();
+        Set<Integer> moduli = new LinkedHashSet<>();
+        if (metrics == null || metrics.isBlank()) {
+            names.addAll(STATS_METRICS);
+        } else {
+            for (String metric : metrics.split(",")) {
+                String name = metric.trim();
+                if (name.startsWith("mod:")) {
+                    moduli.add(parseModulus(name.substring(4)));
+                } else if (STATS_METRICS.contains(name)) {
+                    names.add(name);
+                } else {
+                    throw new IllegalArgumentException("Unknown metric: " + name + " (available=" + STATS_METRICS
+                            + " or mod:k)");
+                }
+            }
+        }
+        if (moduli.size() > maxStatsModuli) {
+            throw new IllegalArgumentException("at most " + maxStatsModuli + " moduli per request");
+        }
+
+        log.debug("Aggregating {} mod {} over primes up to max={}", names, moduli, max);
+        int[] mods = moduli.stream().mapToInt(Integer::intValue).toArray();
+        try (var permit = admission.admit(admission.statsCost(max))) {
+            return new Stats(names, timed("stats", segmented, max, () -> segmented.stats(max, mods)));
+        }
+    }
+
+    private int parseModulus(String text) {
+        int k;
+        try {
+            k = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("mod:k needs an integer k, got '" + text + "'");
+        }
+        if (k < 2 || k > maxStatsModulus) {
+            throw new IllegalArgumentException("mod:k needs 2 ≤ k ≤ " + maxStatsModulus);
+        }
+        return k;
+    }
+
+    /** Primality of each value, in order; bitmap lookups where the index covers them, Miller–Rabin otherwise. */
+    public boolean[] testPrimality(long[] values) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException("values must not be empty");
+        }
+        if (values.length > maxTestBatch) {
+            throw new UpperBoundExceededException("batch size must be ≤ " + maxTestBatch);
+        }
+
+        log.debug("Testing primality of {} values", values.length);
+        return primalityTester.testAll(values);
+    }
+
+    /**
+     * The named algorithm, the configured default, or for "auto" the candidate the selector expects to be
+     * fastest for a request of this kind and size.
+     */
+    private PrimeAlgorithm resolve(String algorithmName, String kind, long size) {
         String key = (algorithmName == null || algorithmName.isBlank())
                 ? defaultAlgorithmName
                 : algorithmName;
 
+        if (AlgorithmSelector.AUTO.equals(key)) {
+            List<PrimeAlgorithm> candidates = autoCandidates.stream()
+                    .map(algorithms::get)
+                    .filter(Objects::nonNull)
+                    .filter(a -> !"range".equals(kind) || a.sievesWindowOnly())
+                    .toList();
+            if (candidates.isEmpty()) {
+                throw new IllegalArgumentException("No algorithm available for auto (candidates=" + autoCandidates + ")");
+            }
+            return selector.choose(kind, size, candidates);
+        }
+
         PrimeAlgorithm algo = algorithms.get(key);
         if (algo == null) {
-            throw new IllegalArgumentException("Unknown algorithm: " + key + " (available=" + algorithms.keySet() + ")");
+            throw new IllegalArgumentException("Unknown algorithm: " + key + " (available=" + algorithms.keySet()
+                    + " or " + AlgorithmSelector.AUTO + ")");
         }
+        return algo;
+    }
+
+    /**
+     * Reserve capacity for {@link #stream} before the response is committed, so a rejection can still
+     * become a 503. The caller closes the permit once streaming ends.
+     */
+    public AdmissionController.Permit admitStream(int max) {
+        return admission.admit(admission.streamCost(max));
+    }
 
-        log.debug("Using algorithm='{}' for max={}", key, max);
-        return algo.computeUpTo(max);
+    /** Stream primes ≤ max segment by segment, in ascending order, without materializing the full result. */
+    public void stream(int max, Consumer<PrimeArray> segmentConsumer) {
+        log.debug("Streaming primes up to max={}", max);
+        segmented.forEachSegment(max, segmentConsumer);
     }
 
 
@@ -0,0 +1,26 @@
+package com.rbs.primenumbers.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for /api/v1/primes/nth/{n}.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class NthPrimeResponse {
+    @Schema(description = "Position of the prime, 1-based (n = 1 is 2)", example = "10000000")
+    private final long n;
+    @Schema(description = "The n-th prime", example = "179424673")
+    private final long prime;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "40")
+    private final long durationMs;
+}
@@ -0,0 +1,27 @@
+package com.rbs.primenumbers.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for POST /api/v1/primes/test.
+ * results[i] tells whether values[i] is prime.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PrimalityResponse {
+    @Schema(description = "Values tested, in request order", example = "[2, 15, 1000000007]")
+    private final long[] values;
+    @Schema(description = "One entry per value: true when the value is prime", example = "[true, false, true]")
+    private final boolean[] results;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "0")
+    private final long durationMs;
+}
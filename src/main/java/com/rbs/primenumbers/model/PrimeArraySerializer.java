@@ -0,0 +1,42 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link PrimeArray} straight from its backing int[] (no boxing, no intermediate List).
+ *
+ * JSON: a plain number array. XML: the same wrapped layout Jackson uses for a List property,
+ * i.e. {@code <primes><primes>2</primes><primes>3</primes></primes>}, so clients see no change.
+ */
+public class PrimeArraySerializer extends StdSerializer<PrimeArray> {
+
+    public PrimeArraySerializer() {
+        super(PrimeArray.class);
+    }
+
+    @Override
+    public void serialize(PrimeArray value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        int[] values = value.backingArray();
+        int from = value.offset();
+        int to = from + value.size();
+
+        if (gen instanceof ToXmlGenerator xml) {
+            String element = xml.getOutputContext().getCurrentName();
+            xml.writeStartObject();
+            for (int i = from; i < to; i++) {
+                xml.writeFieldName(element);
+                xml.writeNumber(values[i]);
+            }
+            xml.writeEndObject();
+            return;
+        }
+
+        gen.writeArray(values, from, to - from);
+    }
+}
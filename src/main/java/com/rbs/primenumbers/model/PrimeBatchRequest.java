@@ -0,0 +1,25 @@
+package com.rbs.primenumbers.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Request body for POST /api/v1/primes/batch: several bounds and windows answered from a single sieve.
+ * Items come back bounds first, then ranges, each in request order.
+ */
+public record PrimeBatchRequest(
+        @Schema(description = "Upper bounds; each item is the primes ≤ bound", example = "[1000, 10000, 100000]")
+        List<Integer> bounds,
+        @Schema(description = "Inclusive windows; each item is the primes in [from, to]")
+        List<Range> ranges,
+        @Schema(description = "Only return counts, not the primes (JSON/XML)", example = "false")
+        boolean countsOnly
+) {
+    public record Range(
+            @Schema(description = "Lower bound, inclusive", example = "100")
+            int from,
+            @Schema(description = "Upper bound, inclusive", example = "200")
+            int to
+    ) {}
+}
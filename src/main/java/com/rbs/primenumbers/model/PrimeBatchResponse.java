@@ -0,0 +1,47 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for POST /api/v1/primes/batch.
+ * Every item is a view into the one sieve up to {@code sievedUpTo}.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PrimeBatchResponse {
+    @Schema(description = "Largest bound in the batch: the only sieve that ran", example = "100000")
+    private final int sievedUpTo;
+    @Schema(description = "One item per bound, then one per range, in request order")
+    private final List<Item> items;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "2")
+    private final long durationMs;
+
+    @Getter
+    @Builder
+    @AllArgsConstructor
+    public static class Item {
+        @Schema(description = "Lower bound, inclusive (0 for bounds)", example = "0")
+        private final int from;
+        @Schema(description = "Upper bound, inclusive", example = "1000")
+        private final int to;
+        @Schema(description = "Number of primes in [from, to]", example = "168")
+        private final int count;
+        @Schema(description = "Ascending primes in [from, to]; omitted when countsOnly is set")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonSerialize(using = PrimeArraySerializer.class)
+        private final PrimeArray primes;
+    }
+}
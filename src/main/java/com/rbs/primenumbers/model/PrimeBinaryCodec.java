@@ -0,0 +1,288 @@
+package com.rbs.primenumbers.model;
+
+import com.rbs.primenumbers.algorithm.OddBitmap;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary bodies for /api/v1/primes/{max}, plus a dependency-free decoder clients can copy.
+ *
+ * Both formats start with the same 24-byte big-endian header:
+ * <pre>
+ *  offset size  field
+ *       0    4  magic: "PRMV" (delta varint) or "PRMB" (bitmap)
+ *       4    1  version (1)
+ *       5    3  reserved, zero
+ *       8    8  max   (signed 64-bit)
+ *      16    8  count (signed 64-bit), number of primes <= max
+ * </pre>
+ *
+ * {@value #DELTA_VARINT_VALUE}: {@code count} unsigned LEB128 varints, each the gap to the previous
+ * prime (the first one from 0), i.e. about one byte per prime.
+ *
+ * {@value #BITMAP_VALUE}: the odd-only sieve, {@code ceil(((max + 1) / 2) / 8)} bytes; bit {@code i & 7}
+ * (least significant first) of byte {@code i >>> 3} is set when 2i+1 is prime. 2 is implied when max >= 2.
+ *
+ * {@value #BATCH_VALUE}: several delta-varint bodies (one per batch item) behind a 12-byte frame header
+ * <pre>
+ *  offset size  field
+ *       0    4  magic "PRMK"
+ *       4    1  version (2)
+ *       5    3  reserved, zero
+ *       8    4  item count
+ *      12       per item:
+ *                  8  from (signed 64-bit), the item's lower bound; 0 for a plain bound
+ *                  4  body length
+ *                     a delta-varint body whose max is the item's upper bound
+ * </pre>
+ * Version 1 frames had no {@code from}, so a range could not be told apart from a bound.
+ */
+public final class PrimeBinaryCodec {
+
+    public static final String DELTA_VARINT_VALUE = "application/x-prime-delta-varint";
+    public static final String BITMAP_VALUE = "application/x-prime-bitmap";
+    public static final String BATCH_VALUE = "application/x-prime-batch";
+
+    public static final int HEADER_BYTES = 24;
+    public static final int VERSION = 1;
+
+    static final int MAGIC_DELTA_VARINT = ('P' << 24) | ('R' << 16) | ('M' << 8) | 'V';
+    static final int MAGIC_BITMAP = ('P' << 24) | ('R' << 16) | ('M' << 8) | 'B';
+    static final int MAGIC_BATCH = ('P' << 24) | ('R' << 16) | ('M' << 8) | 'K';
+
+    public static final int BATCH_VERSION = 2;
+
+    private static final int BATCH_HEADER_BYTES = 12;
+    private static final int BATCH_ITEM_HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    /** Decoded body: the header fields and the primes in ascending order. */
+    public record Decoded(long max, long count, int[] primes) {}
+
+    /** Decoded batch item: the primes in [from, max]. */
+    public record BatchItem(long from, long max, long count, int[] primes) {}
+
+    private PrimeBinaryCodec() {}
+
+    // --- encoding ---
+
+    /** Delta-varint body, written straight from the bitmap words (no intermediate prime array). */
+    public static byte[] encodeDeltaVarint(OddBitmap bitmap) {
+        // Pass 1 sizes the body exactly, pass 2 writes it: both are a popcount-speed scan of the words
+        long size = HEADER_BYTES;
+        int prev = 0;
+        if (bitmap.max() >= 2) { size += varintLength(2); prev = 2; }
+        long bits = bitmap.bitLength();
+        LongBuffer words = bitmap.words();
+        for (int w = 0, lastWord = lastWord(bits); w <= lastWord; w++) {
+            long word = words.get(w) & wordMask(w, bits);
+            while (word != 0) {
+                int p = (int) ((((long) w << 6) + Long.numberOfTrailingZeros(word)) * 2 + 1);
+                size += varintLength(p - prev);
+                prev = p;
+                word &= word - 1;
+            }
+        }
+
+        byte[] out = new byte[Math.toIntExact(size)];
+        int pos = writeHeader(out, MAGIC_DELTA_VARINT, bitmap.max(), bitmap.count());
+        prev = 0;
+        if (bitmap.max() >= 2) { pos = writeVarint(out, pos, 2); prev = 2; }
+        for (int w = 0, lastWord = lastWord(bits); w <= lastWord; w++) {
+            long word = words.get(w) & wordMask(w, bits);
+            while (word != 0) {
+                int p = (int) ((((long) w << 6) + Long.numberOfTrailingZeros(word)) * 2 + 1);
+                pos = writeVarint(out, pos, p - prev);
+                prev = p;
+                word &= word - 1;
+            }
+        }
+        return out;
+    }
+
+    /** Bitmap body: the words are copied little-endian, so bit order matches {@link OddBitmap}. */
+    public static byte[] encodeBitmap(OddBitmap bitmap) {
+        long bits = bitmap.bitLength();
+        int payload = Math.toIntExact((bits + 7) >>> 3);
+        byte[] out = new byte[HEADER_BYTES + payload];
+        writeHeader(out, MAGIC_BITMAP, bitmap.max(), bitmap.count());
+
+        ByteBuffer body = ByteBuffer.wrap(out, HEADER_BYTES, payload).order(ByteOrder.LITTLE_ENDIAN);
+        LongBuffer words = bitmap.words();
+        int fullWords = payload >>> 3;
+        for (int w = 0; w < fullWords; w++) {
+            body.putLong(words.get(w) & wordMask(w, bits));
+        }
+        if (fullWords << 3 < payload) {
+            long last = words.get(fullWords) & wordMask(fullWords, bits);
+            for (int b = fullWords << 3; b < payload; b++, last >>>= 8) {
+                body.put((byte) last);
+            }
+        }
+        return out;
+    }
+
+    /** Delta-varint body for primes that are already listed, e.g. one slice of a batch; max is their upper bound. */
+    public static byte[] encodeDeltaVarint(PrimeArray primes, long max) {
+        int[] values = primes.backingArray();
+        int from = primes.offset();
+        int to = from + primes.size();
+
+        long size = HEADER_BYTES;
+        for (int i = from, prev = 0; i < to; prev = values[i++]) {
+            size += varintLength(values[i] - prev);
+        }
+
+        byte[] out = new byte[Math.toIntExact(size)];
+        int pos = writeHeader(out, MAGIC_DELTA_VARINT, max, primes.size());
+        for (int i = from, prev = 0; i < to; prev = values[i++]) {
+            pos = writeVarint(out, pos, values[i] - prev);
+        }
+        return out;
+    }
+
+    /** Frames several bodies (in order) into one batch body; froms[i] is the lower bound of bodies[i]. */
+    public static byte[] encodeBatch(long[] froms, List<byte[]> bodies) {
+        if (froms.length != bodies.size()) {
+            throw new IllegalArgumentException(froms.length + " lower bounds for " + bodies.size() + " bodies");
+        }
+        long size = BATCH_HEADER_BYTES;
+        for (byte[] body : bodies) size += BATCH_ITEM_HEADER_BYTES + body.length;
+
+        ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(size))
+                .putInt(MAGIC_BATCH)
+                .put((byte) BATCH_VERSION)
+                .put(new byte[3])
+                .putInt(bodies.size());
+        for (int i = 0; i < froms.length; i++) {
+            byte[] body = bodies.get(i);
+            out.putLong(froms[i]).putInt(body.length).put(body);
+        }
+        return out.array();
+    }
+
+    // --- decoding ---
+
+    /** Decodes a batch body into its items, in order; throws IllegalArgumentException on a malformed body. */
+    public static List<BatchItem> decodeBatch(byte[] body) {
+        if (body.length < BATCH_HEADER_BYTES) {
+            throw new IllegalArgumentException("body shorter than the " + BATCH_HEADER_BYTES + "-byte batch header");
+        }
+        ByteBuffer in = ByteBuffer.wrap(body);
+        int magic = in.getInt();
+        if (magic != MAGIC_BATCH) throw new IllegalArgumentException("unknown magic 0x" + Integer.toHexString(magic));
+        int version = in.get() & 0xFF;
+        if (version != BATCH_VERSION) throw new IllegalArgumentException("unsupported batch version " + version);
+        in.position(8);
+        int items = in.getInt();
+        if (items < 0) throw new IllegalArgumentException("invalid item count " + items);
+
+        List<BatchItem> decoded = new ArrayList<>(Math.min(items, 1024));
+        for (int i = 0; i < items; i++) {
+            if (in.remaining() < BATCH_ITEM_HEADER_BYTES) throw new IllegalArgumentException("truncated batch at item " + i);
+            long from = in.getLong();
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) throw new IllegalArgumentException("truncated batch at item " + i);
+            byte[] item = new byte[length];
+            in.get(item);
+            Decoded primes = decode(item);
+            if (from < 0 || from > primes.max() + 1) {
+                throw new IllegalArgumentException("invalid item " + i + ": from=" + from + ", max=" + primes.max());
+            }
+            decoded.add(new BatchItem(from, primes.max(), primes.count(), primes.primes()));
+        }
+        if (in.hasRemaining()) throw new IllegalArgumentException(in.remaining() + " trailing bytes after " + items + " items");
+        return decoded;
+    }
+
+    /** Decodes either format; throws IllegalArgumentException on a malformed body. */
+    public static Decoded decode(byte[] body) {
+        if (body.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("body shorter than the " + HEADER_BYTES + "-byte header");
+        }
+        ByteBuffer in = ByteBuffer.wrap(body);
+        int magic = in.getInt();
+        int version = in.get() & 0xFF;
+        if (version != VERSION) throw new IllegalArgumentException("unsupported version " + version);
+        in.position(8);
+        long max = in.getLong();
+        long count = in.getLong();
+        if (max < 0 || max > Integer.MAX_VALUE || count < 0 || count > max) {
+            throw new IllegalArgumentException("invalid header: max=" + max + ", count=" + count);
+        }
+
+        int[] primes = new int[(int) count];
+        int n = 0;
+        if (magic == MAGIC_DELTA_VARINT) {
+            long prev = 0;
+            for (; n < count; n++) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    if (!in.hasRemaining() || shift > 28) throw new IllegalArgumentException("truncated or invalid varint");
+                    b = in.get();
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                prev += value;
+                primes[n] = (int) prev;
+            }
+        } else if (magic == MAGIC_BITMAP) {
+            if (max >= 2 && count > 0) primes[n++] = 2;
+            for (int i = HEADER_BYTES; i < body.length; i++) {
+                int b = body[i] & 0xFF;
+                while (b != 0) {
+                    if (n == count) throw new IllegalArgumentException("more bits set than count=" + count);
+                    long bit = ((long) (i - HEADER_BYTES) << 3) + Integer.numberOfTrailingZeros(b);
+                    primes[n++] = (int) (bit * 2 + 1);
+                    b &= b - 1;
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("unknown magic 0x" + Integer.toHexString(magic));
+        }
+
+        if (n != count) throw new IllegalArgumentException("expected " + count + " primes, found " + n);
+        return new Decoded(max, count, primes);
+    }
+
+    // --- helpers ---
+
+    private static int writeHeader(byte[] out, int magic, long max, long count) {
+        ByteBuffer.wrap(out)
+                .putInt(magic)
+                .put((byte) VERSION)
+                .put(new byte[3])
+                .putLong(max)
+                .putLong(count);
+        return HEADER_BYTES;
+    }
+
+    private static int lastWord(long bits) {
+        return (int) ((bits - 1) >> 6); // -1 when there are no bits
+    }
+
+    /** Mask of the bits of word w that are below {@code bits}. */
+    private static long wordMask(int w, long bits) {
+        long remaining = bits - ((long) w << 6);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    private static int varintLength(int value) {
+        return value < (1 << 7) ? 1 : value < (1 << 14) ? 2 : value < (1 << 21) ? 3 : value < (1 << 28) ? 4 : 5;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,26 @@
+package com.rbs.primenumbers.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for /api/v1/primes/{max}/count.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PrimeCountResponse {
+    @Schema(description = "Original input", example = "100000000000")
+    private final long input;
+    @Schema(description = "Number of primes ≤ input, pi(input)", example = "4118054813")
+    private final long count;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "340")
+    private final long durationMs;
+}
@@ -0,0 +1,34 @@
+package com.rbs.primenumbers.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for /api/v1/primes/page?offset=&limit=.
+ * Positions are 0-based: offset 0 is the prime 2.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PrimePageResponse {
+    @Schema(description = "Position of the first prime returned (0-based)", example = "1000000")
+    private final long offset;
+    @Schema(description = "Requested page size", example = "5")
+    private final int limit;
+    @Schema(description = "Number of primes returned", example = "5")
+    private final int count;
+    @Schema(description = "Offset of the next page", example = "1000005")
+    private final long nextOffset;
+    @Schema(description = "Primes at positions [offset, offset + count), ascending",
+            example = "[15485867, 15485917, 15485927, 15485933, 15485941]")
+    private final long[] primes;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "3")
+    private final long durationMs;
+}
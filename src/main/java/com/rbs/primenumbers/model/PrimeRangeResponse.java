@@ -0,0 +1,30 @@
+package com.rbs.primenumbers.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for /api/v1/primes/range?from=&to=.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+public class PrimeRangeResponse {
+    @Schema(description = "Lower bound of the window (inclusive)", example = "1000000000000")
+    private final long from;
+    @Schema(description = "Upper bound of the window (inclusive)", example = "1000000000100")
+    private final long to;
+    @Schema(description = "Number of primes in the window", example = "5")
+    private final int count;
+    @Schema(description = "Ascending list of primes in [from, to]")
+    private final long[] primes;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "2")
+    private final long durationMs;
+}
@@ -1,11 +1,12 @@
 package com.rbs.primenumbers.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.rbs.primenumbers.algorithm.PrimeArray;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 
 import java.time.Instant;
-import java.util.List;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 
@@ -24,7 +25,8 @@ public class PrimeResponse {
     @Schema(description = "Number of primes returned", example = "25")
     private final int count; // How many primes found
     @Schema(description = "Ascending list of primes")
-    private final List<Integer> primes;   // List of primes up to 'input'
+    @JsonSerialize(using = PrimeArraySerializer.class)
+    private final PrimeArray primes;      // Primes up to 'input' (primitive int[] view)
     @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
     private final Instant computedAt;     // Timestamp of computation
     @Schema(description = "Computation duration in milliseconds", example = "2")
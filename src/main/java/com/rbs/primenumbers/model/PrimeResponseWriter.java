@@ -0,0 +1,247 @@
+package com.rbs.primenumbers.model;
+
+import com.rbs.primenumbers.algorithm.PrimeArray;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Writes a {@link PrimeResponse} as JSON or XML without Jackson: digits go straight from the backing int[]
+ * into a reusable per-thread buffer that is flushed to the stream whenever it fills up, so a body of any
+ * size costs one 64 KiB buffer per thread and no garbage.
+ *
+ * The output is byte-identical to what Spring MVC's Jackson converters produce for the same object
+ * (field order, ISO-8601 {@code computedAt}, the wrapped {@code <primes><primes>2</primes>...</primes>}
+ * XML layout), so clients can't tell which path wrote it.
+ */
+public final class PrimeResponseWriter {
+
+    static final int CHUNK_BYTES = 64 * 1024;
+
+    /** Longest single write: an XML array element with a 10-digit int. */
+    private static final int MAX_ELEMENT = 27;
+
+    /** ASCII of 000..999, three bytes each. */
+    private static final byte[] DIGIT_TRIPLETS = new byte[3000];
+
+    static {
+        for (int i = 0; i < 1000; i++) {
+            DIGIT_TRIPLETS[3 * i] = (byte) ('0' + i / 100);
+            DIGIT_TRIPLETS[3 * i + 1] = (byte) ('0' + i / 10 % 10);
+            DIGIT_TRIPLETS[3 * i + 2] = (byte) ('0' + i % 10);
+        }
+    }
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[CHUNK_BYTES]);
+
+    private static final byte[] JSON_INPUT = ascii("{\"input\":");
+    private static final byte[] JSON_COUNT = ascii(",\"count\":");
+    private static final byte[] JSON_PRIMES = ascii(",\"primes\":");
+    private static final byte[] JSON_COMPUTED_AT = ascii(",\"computedAt\":");
+    private static final byte[] JSON_DURATION = ascii(",\"durationMs\":");
+    private static final byte[] JSON_NULL = ascii("null");
+
+    private static final byte[] XML_INPUT = ascii("<PrimeResponse><input>");
+    private static final byte[] XML_COUNT = ascii("</input><count>");
+    private static final byte[] XML_PRIMES_OPEN = ascii("</count><primes>");
+    private static final byte[] XML_PRIMES_EMPTY = ascii("</count><primes/>");
+    private static final byte[] XML_PRIMES_CLOSE = ascii("</primes>");
+    private static final byte[] XML_ELEMENT_OPEN = ascii("<primes>");
+    private static final byte[] XML_COMPUTED_AT = ascii("<computedAt>");
+    private static final byte[] XML_COMPUTED_AT_EMPTY = ascii("<computedAt/>");
+    private static final byte[] XML_DURATION = ascii("</computedAt><durationMs>");
+    private static final byte[] XML_DURATION_AFTER_EMPTY = ascii("<durationMs>");
+    private static final byte[] XML_END = ascii("</durationMs></PrimeResponse>");
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+
+    private PrimeResponseWriter(OutputStream out) {
+        this.out = out;
+        this.buf = BUFFER.get();
+    }
+
+    /** {@code {"input":..,"count":..,"primes":[..],"computedAt":"..","durationMs":..}} */
+    public static void writeJson(PrimeResponse response, OutputStream out) throws IOException {
+        var w = new PrimeResponseWriter(out);
+        w.bytes(JSON_INPUT);
+        w.number(response.getInput());
+        w.bytes(JSON_COUNT);
+        w.number(response.getCount());
+        w.bytes(JSON_PRIMES);
+        w.jsonArray(response.getPrimes());
+        w.bytes(JSON_COMPUTED_AT);
+        w.jsonString(response.getComputedAt());
+        w.bytes(JSON_DURATION);
+        w.number(response.getDurationMs());
+        w.ensure(1);
+        w.buf[w.pos++] = '}';
+        w.flush();
+    }
+
+    /** {@code <PrimeResponse><input>..</input>..<primes><primes>2</primes>..</primes>..</PrimeResponse>} */
+    public static void writeXml(PrimeResponse response, OutputStream out) throws IOException {
+        var w = new PrimeResponseWriter(out);
+        w.bytes(XML_INPUT);
+        w.number(response.getInput());
+        w.bytes(XML_COUNT);
+        w.number(response.getCount());
+        w.xmlArray(response.getPrimes());
+
+        Instant computedAt = response.getComputedAt();
+        if (computedAt == null) {
+            w.bytes(XML_COMPUTED_AT_EMPTY);
+            w.bytes(XML_DURATION_AFTER_EMPTY);
+        } else {
+            w.bytes(XML_COMPUTED_AT);
+            w.bytes(ascii(computedAt.toString()));
+            w.bytes(XML_DURATION);
+        }
+        w.number(response.getDurationMs());
+        w.bytes(XML_END);
+        w.flush();
+    }
+
+    /**
+     * Non-negative int to ASCII at pos, three digits per step; returns the position after the last digit.
+     * The caller guarantees 10 bytes of room.
+     */
+    public static int writeDigits(int value, byte[] buf, int pos) {
+        if (value < 1000) return leading(value, buf, pos);
+        int q = value / 1000;
+        int low = value - q * 1000;
+        if (q < 1000) {
+            pos = leading(q, buf, pos);
+        } else {
+            int qq = q / 1000;
+            pos = leading(qq, buf, pos); // at most 2147
+            pos = triplet(q - qq * 1000, buf, pos);
+        }
+        return triplet(low, buf, pos);
+    }
+
+    /** 0..9999 without leading zeros. */
+    private static int leading(int value, byte[] buf, int pos) {
+        if (value >= 1000) {
+            int q = value / 1000;
+            buf[pos++] = (byte) ('0' + q);
+            return triplet(value - q * 1000, buf, pos);
+        }
+        int t = 3 * value;
+        if (value >= 100) buf[pos++] = DIGIT_TRIPLETS[t];
+        if (value >= 10) buf[pos++] = DIGIT_TRIPLETS[t + 1];
+        buf[pos++] = DIGIT_TRIPLETS[t + 2];
+        return pos;
+    }
+
+    private static int triplet(int value, byte[] buf, int pos) {
+        int t = 3 * value;
+        buf[pos] = DIGIT_TRIPLETS[t];
+        buf[pos + 1] = DIGIT_TRIPLETS[t + 1];
+        buf[pos + 2] = DIGIT_TRIPLETS[t + 2];
+        return pos + 3;
+    }
+
+    private void jsonArray(PrimeArray primes) throws IOException {
+        if (primes == null) {
+            bytes(JSON_NULL);
+            return;
+        }
+        int[] values = primes.backingArray();
+        int i = primes.offset();
+        int end = i + primes.size();
+
+        ensure(1);
+        buf[pos++] = '[';
+        while (i < end) {
+            // one capacity check per run of elements that is sure to fit
+            int run = Math.min(end - i, (buf.length - pos) / 11);
+            if (run == 0) {
+                flush();
+                continue;
+            }
+            byte[] b = buf;
+            int p = pos;
+            for (int stop = i + run; i < stop; i++) {
+                p = writeDigits(values[i], b, p);
+                b[p++] = ',';
+            }
+            pos = p;
+        }
+        if (end > primes.offset()) pos--; // trailing comma
+        ensure(1);
+        buf[pos++] = ']';
+    }
+
+    private void xmlArray(PrimeArray primes) throws IOException {
+        if (primes == null || primes.isEmpty()) {
+            bytes(XML_PRIMES_EMPTY);
+            return;
+        }
+        bytes(XML_PRIMES_OPEN);
+        int[] values = primes.backingArray();
+        int i = primes.offset();
+        int end = i + primes.size();
+        while (i < end) {
+            int run = Math.min(end - i, (buf.length - pos) / MAX_ELEMENT);
+            if (run == 0) {
+                flush();
+                continue;
+            }
+            byte[] b = buf;
+            int p = pos;
+            for (int stop = i + run; i < stop; i++) {
+                System.arraycopy(XML_ELEMENT_OPEN, 0, b, p, XML_ELEMENT_OPEN.length);
+                p = writeDigits(values[i], b, p + XML_ELEMENT_OPEN.length);
+                System.arraycopy(XML_PRIMES_CLOSE, 0, b, p, XML_PRIMES_CLOSE.length);
+                p += XML_PRIMES_CLOSE.length;
+            }
+            pos = p;
+        }
+        bytes(XML_PRIMES_CLOSE);
+    }
+
+    private void jsonString(Instant instant) throws IOException {
+        if (instant == null) {
+            bytes(JSON_NULL);
+            return;
+        }
+        byte[] text = ascii(instant.toString()); // ISO-8601, as Jackson's InstantSerializer writes it
+        ensure(text.length + 2);
+        buf[pos++] = '"';
+        System.arraycopy(text, 0, buf, pos, text.length);
+        pos += text.length;
+        buf[pos++] = '"';
+    }
+
+    private void number(long value) throws IOException {
+        if (value >= 0 && value <= Integer.MAX_VALUE) {
+            ensure(10);
+            pos = writeDigits((int) value, buf, pos);
+        } else {
+            bytes(ascii(Long.toString(value)));
+        }
+    }
+
+    private void bytes(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void ensure(int room) throws IOException {
+        if (buf.length - pos < room) flush();
+    }
+
+    private void flush() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
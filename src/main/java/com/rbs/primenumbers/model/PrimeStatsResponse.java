@@ -0,0 +1,61 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * DTO representing the API response for /api/v1/primes/{max}/stats.
+ * Metrics that were not requested are left out.
+ */
+@Getter
+@Builder
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PrimeStatsResponse {
+    @Schema(description = "Original input", example = "1000000000")
+    private final long input;
+    @Schema(description = "Number of primes ≤ input", example = "50847534")
+    private final long count;
+    @Schema(description = "Sum of the primes ≤ input", example = "24739512092254535")
+    private final BigInteger sum;
+    @Schema(description = "Pairs (p, p + 2) with both primes ≤ input", example = "3424506")
+    private final Long twinPairs;
+    @Schema(description = "Largest gap between consecutive primes ≤ input")
+    private final Gap maxGap;
+    @Schema(description = "Prime counts per residue, one entry per requested mod:k")
+    private final List<Residues> residues;
+    @Schema(description = "UTC timestamp the result was computed at", example = "2025-10-24T13:59:12Z")
+    private final Instant computedAt;
+    @Schema(description = "Computation duration in milliseconds", example = "1200")
+    private final long durationMs;
+
+    @Getter
+    @Builder
+    @AllArgsConstructor
+    public static class Gap {
+        @Schema(description = "Difference between the two primes; the first such gap if it occurs more than once", example = "282")
+        private final long gap;
+        @Schema(description = "Prime the gap starts after", example = "436273009")
+        private final long after;
+        @Schema(description = "Prime the gap ends at", example = "436273291")
+        private final long before;
+    }
+
+    @Getter
+    @Builder
+    @AllArgsConstructor
+    public static class Residues {
+        @Schema(description = "Modulus k", example = "4")
+        private final int modulus;
+        @Schema(description = "counts[r]: primes ≤ input that are ≡ r (mod k)", example = "[0, 25423491, 1, 25424042]")
+        private final long[] counts;
+    }
+}
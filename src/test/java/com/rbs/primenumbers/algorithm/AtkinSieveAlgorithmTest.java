@@ -0,0 +1,50 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected unit tests for the segmented Sieve of Atkin, with a tiny block so results span many segments.
+ * Agreement with the other engines is covered by {@link PrimeAlgorithmDifferentialTest}.
+ */
+@SpringBootTest(classes = { AtkinSieveAlgorithm.class, WheelSieveAlgorithm.class })
+@TestPropertySource(properties = "primes.segment-cache-bytes=64")
+class AtkinSieveAlgorithmTest {
+
+    @Autowired
+    private AtkinSieveAlgorithm atkin;
+
+    @Autowired
+    private WheelSieveAlgorithm wheel;
+
+    @Test
+    void returnsKnownSmallSets() {
+        assertEquals(List.of(), atkin.computeUpTo(1));
+        assertEquals(List.of(2), atkin.computeUpTo(2));
+        assertEquals(List.of(2, 3), atkin.computeUpTo(4));
+        assertEquals(List.of(2, 3, 5, 7, 11, 13, 17, 19, 23, 29), atkin.computeUpTo(30));
+    }
+
+    @Test
+    void squaresOfPrimesAreNotPrime() {
+        // 25, 49, 121, ... have an odd number of representations for some forms and must be struck out
+        var primes = atkin.computeArrayUpTo(200_000);
+        int[] values = primes.toArray();
+        for (int p : new int[] {5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47, 443}) {
+            assertTrue(Arrays.binarySearch(values, p * p) < 0, p + "²");
+        }
+        assertEquals(wheel.computeArrayUpTo(200_000), primes);
+    }
+
+    @Test
+    void defaultsItsBlockWhenBuiltWithoutSpring() {
+        assertEquals(wheel.computeArrayUpTo(1_000_000), new AtkinSieveAlgorithm().computeArrayUpTo(1_000_000));
+    }
+}
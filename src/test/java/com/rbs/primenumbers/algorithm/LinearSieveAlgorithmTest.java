@@ -0,0 +1,62 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected unit tests for the linear (Euler) sieve and its smallest-prime-factor table.
+ * Agreement with the other engines is covered by {@link PrimeAlgorithmDifferentialTest}.
+ */
+@SpringBootTest(classes = { LinearSieveAlgorithm.class })
+class LinearSieveAlgorithmTest {
+
+    @Autowired
+    private LinearSieveAlgorithm linear;
+
+    @Test
+    void returnsKnownSmallSets() {
+        assertEquals(List.of(), linear.computeUpTo(1));
+        assertEquals(List.of(2), linear.computeUpTo(2));
+        assertEquals(List.of(2, 3, 5, 7, 11, 13, 17, 19, 23, 29), linear.computeUpTo(30));
+    }
+
+    @Test
+    void smallestPrimeFactors_factorizeEveryNumber() {
+        int max = 100_000;
+        int[] spf = linear.smallestPrimeFactors(max);
+        assertEquals(max + 1, spf.length);
+        assertEquals(0, spf[0]);
+        assertEquals(0, spf[1]);
+
+        for (int n = 2; n <= max; n++) {
+            int rest = n, product = 1, previous = 0;
+            while (rest > 1) {
+                int p = spf[rest];
+                assertTrue(p >= previous, "factors come out in ascending order");
+                assertEquals(p, spf[p], p + " is prime");
+                product *= p;
+                rest /= p;
+                previous = p;
+            }
+            assertEquals(n, product);
+        }
+        assertEquals(7, spf[7 * 11 * 13]);
+        assertEquals(2, spf[1 << 16]);
+    }
+
+    @Test
+    void refusesBoundsBeyondTheTable() {
+        assertThrows(IllegalArgumentException.class, () -> linear.computeArrayUpTo(LinearSieveAlgorithm.MAX_TABLE + 1));
+        assertThrows(IllegalArgumentException.class, () -> linear.smallestPrimeFactors(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void pricesItsTable() {
+        assertEquals(4L * 1_000_001, linear.workingBytes(1_000_000));
+    }
+}
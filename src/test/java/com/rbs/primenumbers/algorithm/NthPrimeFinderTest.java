@@ -0,0 +1,57 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected tests for the n-th prime finder.
+ * The bounds and small positions are checked against a full sieve, large ones against known values of p_n.
+ */
+@SpringBootTest(classes = {
+        NthPrimeFinder.class,
+        PrimeCounter.class,
+        SegmentedParallelSieveAlgorithm.class,
+        SievePool.class,
+        SimpleSieveAlgorithm.class
+})
+class NthPrimeFinderTest {
+
+    @Autowired
+    private NthPrimeFinder finder;
+
+    @Autowired
+    private SimpleSieveAlgorithm simple;
+
+    @Test
+    void boundsBracketEveryPrimeUpTo16Million() {
+        // crosses n = 688,383, where the tighter upper bound takes over
+        int[] primes = simple.computeArrayUpTo(16_000_000).toArray();
+        for (int i = 0; i < primes.length; i++) {
+            long n = i + 1;
+            assertTrue(NthPrimeFinder.lowerBound(n) <= primes[i], "lower bound above p_" + n);
+            assertTrue(NthPrimeFinder.upperBound(n) >= primes[i], "upper bound below p_" + n);
+        }
+    }
+
+    @Test
+    void matchesSieveAtSampledPositions() {
+        int[] primes = simple.computeArrayUpTo(16_000_000).toArray();
+        for (int n : new int[]{1, 2, 5, 6, 7, 100, 3_500, 82_025, 82_026, 688_382, 688_383, 1_000_000, primes.length}) {
+            assertEquals(primes[n - 1], finder.nth(n), "n=" + n);
+        }
+    }
+
+    @Test
+    void knownLargeValues() {
+        assertEquals(2_038_074_743L, finder.nth(100_000_000));
+        assertEquals(22_801_763_489L, finder.nth(1_000_000_000));
+    }
+
+    @Test
+    void rejectsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> finder.nth(0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected tests for batch primality testing.
+ * Miller–Rabin is cross-checked against the sieve and against known strong pseudoprimes.
+ */
+@SpringBootTest(classes = {
+        PrimalityTester.class,
+        PrimeIndex.class,
+        PrimeBitmapStore.class,
+        SegmentedParallelSieveAlgorithm.class,
+        SievePool.class,
+        SimpleSieveAlgorithm.class
+})
+@TestPropertySource(properties = {
+        "primes.max-allowed=1000000"
+})
+class PrimalityTesterTest {
+
+    @Autowired
+    private PrimalityTester tester;
+
+    @Autowired
+    private PrimeIndex index;
+
+    @Autowired
+    private SimpleSieveAlgorithm simple;
+
+    @Test
+    void millerRabin_matchesSieveBelow200000() {
+        var primes = simple.computeArrayUpTo(200_000);
+        for (int n = 0; n <= 200_000; n++) {
+            boolean expected = primes.countUpTo(n) > primes.countUpTo(n - 1);
+            assertEquals(expected, PrimalityTester.millerRabin(n), "n=" + n);
+        }
+    }
+
+    @Test
+    void millerRabin_rejectsStrongPseudoprimesAndCarmichaels() {
+        assertFalse(PrimalityTester.millerRabin(561));                  // Carmichael
+        assertFalse(PrimalityTester.millerRabin(3_215_031_751L));       // spsp to bases 2, 3, 5, 7
+        assertFalse(PrimalityTester.millerRabin(3_825_123_056_546_413_051L)); // spsp to every prime base up to 23
+        assertFalse(PrimalityTester.millerRabin(4_611_686_014_132_420_609L)); // (2^31 - 1)^2
+    }
+
+    @Test
+    void millerRabin_acceptsLargePrimes() {
+        assertTrue(PrimalityTester.millerRabin(1_000_000_007L));
+        assertTrue(PrimalityTester.millerRabin(2_305_843_009_213_693_951L)); // 2^61 - 1
+        assertTrue(PrimalityTester.millerRabin(9_223_372_036_854_775_783L)); // largest prime below 2^63
+        assertFalse(PrimalityTester.millerRabin(Long.MAX_VALUE));             // 7^2 * 73 * ...
+    }
+
+    @Test
+    void isPrime_usesIndexBitmapWhenCovered() {
+        index.computeArrayUpTo(1_000);
+        assertTrue(index.covers(997));
+        assertTrue(tester.isPrime(997));
+        assertFalse(tester.isPrime(999));
+        assertFalse(tester.isPrime(-7));
+    }
+
+    @Test
+    void testAll_returnsOneResultPerValue_inOrder() {
+        long[] values = new long[1000];
+        for (int i = 0; i < values.length; i++) values[i] = 1_000_000_000L + i;
+
+        boolean[] results = tester.testAll(values);
+
+        assertEquals(values.length, results.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(PrimalityTester.millerRabin(values[i]), results[i]);
+        }
+        assertTrue(results[7]);  // 1_000_000_007
+        assertTrue(results[9]);  // 1_000_000_009
+        assertFalse(results[8]);
+    }
+}
@@ -0,0 +1,131 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential harness: every PrimeAlgorithm bean in the package (picked up by scanning, so new engines
+ * join automatically) must agree with every other one, on edge-case and random bounds and windows.
+ *
+ * Segment sizes are kept small so the bounds cross many segment and block boundaries.
+ */
+@SpringBootTest(classes = PrimeAlgorithmDifferentialTest.AllAlgorithms.class)
+@TestPropertySource(properties = {
+        "primes.max-allowed=3000000",
+        "primes.segment-size=50000",
+        "primes.segment-cache-bytes=1024"
+})
+class PrimeAlgorithmDifferentialTest {
+
+    @Configuration
+    @ComponentScan(basePackageClasses = PrimeAlgorithm.class)
+    static class AllAlgorithms {}
+
+    /** Integers per odd-only block at primes.segment-cache-bytes=1024. */
+    private static final int BLOCK_SPAN = 2 * 8 * 1024;
+
+    @Autowired
+    private Map<String, PrimeAlgorithm> beans;
+
+    private Map<String, PrimeAlgorithm> algorithms() {
+        return new TreeMap<>(beans);
+    }
+
+    @Test
+    void everyEngineIsRegistered() {
+        assertTrue(beans.keySet().containsAll(
+                List.of("simple", "wheel", "segmented", "indexed", "linear", "atkin")), beans.keySet().toString());
+    }
+
+    @Test
+    void edgeCaseBounds_agree() {
+        var bounds = new TreeSet<Integer>(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 29, 30, 31, 60, 61));
+        for (int r = 2; r <= 1700; r = r < 40 ? r + 1 : r * 2 - 1) {
+            bounds.add(r * r - 1);   // perfect squares and their neighbours
+            bounds.add(r * r);
+            bounds.add(r * r + 1);
+        }
+        for (int span : new int[] {BLOCK_SPAN, 50_000, SegmentCountIndex.SEGMENT_SPAN}) {
+            for (int k = 1; (long) k * span <= 2_500_000; k *= 3) {
+                bounds.add(k * span - 1); // segment and block boundaries
+                bounds.add(k * span);
+                bounds.add(k * span + 1);
+            }
+        }
+        bounds.forEach(this::assertAllAgree);
+    }
+
+    @Test
+    void randomBounds_agree() {
+        var random = new Random(20251018);
+        for (int i = 0; i < 25; i++) {
+            assertAllAgree(random.nextInt(3_000_001));
+        }
+    }
+
+    @Test
+    void randomWindows_agree() {
+        var random = new Random(1018);
+        for (int i = 0; i < 25; i++) {
+            long to = random.nextInt(3_000_001);
+            long from = Math.max(0, to - random.nextInt(200_000));
+            long[] expected = null;
+            String first = null;
+            for (var e : algorithms().entrySet()) {
+                long[] actual = e.getValue().computeRange(from, to);
+                if (expected == null) {
+                    expected = actual;
+                    first = e.getKey();
+                } else {
+                    assertArrayEquals(expected, actual, e.getKey() + " vs " + first + " on [" + from + ", " + to + "]");
+                }
+            }
+        }
+    }
+
+    @Test
+    void knownPrimeCounts() {
+        int[][] known = {{10, 4}, {100, 25}, {1000, 168}, {10_000, 1229}, {100_000, 9592}, {1_000_000, 78498}};
+        for (var e : algorithms().entrySet()) {
+            for (int[] k : known) {
+                assertEquals(k[1], e.getValue().computeArrayUpTo(k[0]).size(), e.getKey() + " pi(" + k[0] + ")");
+            }
+        }
+    }
+
+    private void assertAllAgree(int max) {
+        PrimeArray expected = null;
+        String first = null;
+        for (var e : algorithms().entrySet()) {
+            PrimeArray actual = e.getValue().computeArrayUpTo(max);
+            if (expected == null) {
+                expected = actual;
+                first = e.getKey();
+            } else if (!expected.equals(actual)) {
+                fail(e.getKey() + " vs " + first + " up to " + max + ": first difference at index "
+                        + firstDifference(expected, actual) + " (sizes " + actual.size() + ", " + expected.size() + ")");
+            }
+        }
+    }
+
+    private static int firstDifference(PrimeArray a, PrimeArray b) {
+        int n = Math.min(a.size(), b.size());
+        for (int i = 0; i < n; i++) {
+            if (a.get(i) != b.get(i)) return i;
+        }
+        return n;
+    }
+}
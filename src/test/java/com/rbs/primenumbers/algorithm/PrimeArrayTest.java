@@ -0,0 +1,48 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrimeArrayTest {
+
+    private final PrimeArray primes = PrimeArray.of(2, 3, 5, 7, 11, 13);
+
+    @Test
+    void countUpTo_usesInclusiveBound() {
+        assertEquals(0, primes.countUpTo(1));
+        assertEquals(1, primes.countUpTo(2));
+        assertEquals(4, primes.countUpTo(10));
+        assertEquals(6, primes.countUpTo(100));
+    }
+
+    @Test
+    void upTo_returnsPrefixView() {
+        assertEquals(PrimeArray.of(2, 3, 5, 7), primes.upTo(10));
+        assertSame(primes.backingArray(), primes.upTo(10).backingArray());
+    }
+
+    @Test
+    void slice_isViewWithOffset() {
+        var slice = primes.slice(2, 5);
+        assertEquals(List.of(5, 7, 11), slice.asList());
+        assertEquals(2, slice.countUpTo(7));
+        assertEquals(PrimeArray.of(5, 7), slice.prefix(2));
+    }
+
+    @Test
+    void of_withLength_ignoresTail() {
+        var arr = PrimeArray.of(new int[] {2, 3, 5, 0, 0}, 3);
+        assertEquals(3, arr.size());
+        assertArrayEquals(new int[] {2, 3, 5}, arr.toArray());
+    }
+
+    @Test
+    void outOfRangeAccess_throws() {
+        assertThrows(IndexOutOfBoundsException.class, () -> primes.get(6));
+        assertThrows(IndexOutOfBoundsException.class, () -> primes.slice(3, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> primes.prefix(7));
+    }
+}
@@ -0,0 +1,114 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The store must bring a restarted index back to the last committed segment, and must never
+ * serve a segment whose checksum doesn't match.
+ */
+class PrimeBitmapStoreTest {
+
+    /** Odd numbers per segment * 2: the integers one committed segment covers. */
+    private static final int SEGMENT_SPAN = PrimeBitmapStore.SEGMENT_WORDS * 128;
+
+    @TempDir
+    Path dir;
+
+    private final SimpleSieveAlgorithm simple = new SimpleSieveAlgorithm();
+    private final List<PrimeBitmapStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() throws IOException {
+        for (PrimeBitmapStore store : opened) store.close();
+    }
+
+    private PrimeIndex startIndex() {
+        PrimeBitmapStore store = new PrimeBitmapStore(true, dir);
+        opened.add(store);
+        PrimeIndex index = new PrimeIndex(new SegmentedParallelSieveAlgorithm(new SievePool(2)), store);
+        index.loadStore();
+        return index;
+    }
+
+    private PrimeBitmapStore.Mapped reopen() {
+        PrimeBitmapStore store = new PrimeBitmapStore(true, dir);
+        opened.add(store);
+        return store.open();
+    }
+
+    @Test
+    void restartedIndex_servesCommittedSegmentsWithoutSieving() {
+        startIndex().computeArrayUpTo(3 * SEGMENT_SPAN + 1_000);
+
+        PrimeIndex restarted = startIndex();
+        assertEquals(3 * SEGMENT_SPAN - 1, restarted.bound());
+        assertEquals(simple.computeArrayUpTo(3 * SEGMENT_SPAN - 1), restarted.computeArrayUpTo(3 * SEGMENT_SPAN - 1));
+        assertTrue(restarted.isPrime(393_209));
+        assertFalse(restarted.isPrime(393_211));
+
+        // and keeps growing (and appending) from there
+        assertEquals(simple.computeArrayUpTo(5 * SEGMENT_SPAN), restarted.computeArrayUpTo(5 * SEGMENT_SPAN));
+        assertEquals(5 * PrimeBitmapStore.SEGMENT_WORDS, reopen().committedWords());
+    }
+
+    @Test
+    void boundBelowOneSegment_commitsNothing() {
+        startIndex().computeArrayUpTo(SEGMENT_SPAN - 2);
+
+        assertEquals(0, reopen().committedWords());
+        assertEquals(1, startIndex().bound());
+    }
+
+    @Test
+    void corruptSegment_cutsTheCommittedPrefix() throws IOException {
+        startIndex().computeArrayUpTo(3 * SEGMENT_SPAN);
+        flipByte(PrimeBitmapStore.DATA_OFFSET + PrimeBitmapStore.SEGMENT_BYTES + 100L);
+
+        assertEquals(PrimeBitmapStore.SEGMENT_WORDS, reopen().committedWords());
+    }
+
+    @Test
+    void corruptHeader_startsFromScratch() throws IOException {
+        startIndex().computeArrayUpTo(2 * SEGMENT_SPAN);
+        flipByte(17);
+
+        PrimeIndex restarted = startIndex();
+        assertEquals(1, restarted.bound());
+        assertEquals(simple.computeArrayUpTo(10_000), restarted.computeArrayUpTo(10_000));
+    }
+
+    @Test
+    void uncommittedTail_isDiscardedOnOpen() throws IOException {
+        startIndex().computeArrayUpTo(SEGMENT_SPAN);
+        try (var file = new RandomAccessFile(dir.resolve(PrimeBitmapStore.FILE_NAME).toFile(), "rw")) {
+            // a crash after writing part of the next segment but before its header commit
+            file.setLength(PrimeBitmapStore.DATA_OFFSET + 2L * PrimeBitmapStore.SEGMENT_BYTES);
+            file.seek(PrimeBitmapStore.DATA_OFFSET + PrimeBitmapStore.SEGMENT_BYTES);
+            file.write(new byte[] {-1, -1, -1, -1});
+        }
+
+        assertEquals(PrimeBitmapStore.SEGMENT_WORDS, reopen().committedWords());
+        assertEquals(PrimeBitmapStore.DATA_OFFSET + PrimeBitmapStore.SEGMENT_BYTES,
+                Files.size(dir.resolve(PrimeBitmapStore.FILE_NAME)));
+    }
+
+    private void flipByte(long position) throws IOException {
+        try (var file = new RandomAccessFile(dir.resolve(PrimeBitmapStore.FILE_NAME).toFile(), "rw")) {
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0x5A);
+        }
+    }
+}
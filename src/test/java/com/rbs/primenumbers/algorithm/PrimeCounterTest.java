@@ -0,0 +1,59 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected tests for the sublinear prime counter.
+ * Small inputs are checked against the sieve beans, large ones against known values of pi(x).
+ */
+@SpringBootTest(classes = {
+        PrimeCounter.class,
+        SimpleSieveAlgorithm.class,
+        WheelSieveAlgorithm.class
+})
+class PrimeCounterTest {
+
+    @Autowired
+    private PrimeCounter counter;
+
+    @Autowired
+    private SimpleSieveAlgorithm simple;
+
+    @Autowired
+    private WheelSieveAlgorithm wheel;
+
+    @Test
+    void returnsZeroForLessThan2() {
+        assertEquals(0, counter.countUpTo(-5));
+        assertEquals(0, counter.countUpTo(0));
+        assertEquals(0, counter.countUpTo(1));
+    }
+
+    @Test
+    void matchesSimpleSieveForEveryBoundUpTo3000() {
+        var primes = simple.computeArrayUpTo(3000);
+        for (int x = 0; x <= 3000; x++) {
+            assertEquals(primes.countUpTo(x), counter.countUpTo(x), "x=" + x);
+        }
+    }
+
+    @Test
+    void matchesWheelSieveAroundPerfectSquares() {
+        for (int r = 100; r <= 1000; r += 37) {
+            for (int x = r * r - 1; x <= r * r + 1; x++) {
+                assertEquals(wheel.computeArrayUpTo(x).size(), counter.countUpTo(x), "x=" + x);
+            }
+        }
+    }
+
+    @Test
+    void knownValues() {
+        assertEquals(78_498L, counter.countUpTo(1_000_000L));
+        assertEquals(50_847_534L, counter.countUpTo(1_000_000_000L));
+        assertEquals(4_118_054_813L, counter.countUpTo(100_000_000_000L));
+    }
+}
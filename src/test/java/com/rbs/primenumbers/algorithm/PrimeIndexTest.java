@@ -0,0 +1,106 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected tests for the shared prime index.
+ * Each test gets a fresh (empty) index so growth paths are exercised deterministically.
+ *
+ * Segments are the smallest the sieve allows and blocks are 64 bytes (1,024 integers), so chunks are
+ * ~10k integers and growing to 100,000 and beyond sieves its tail in several parallel chunks.
+ */
+@SpringBootTest(classes = {
+        PrimeIndex.class,
+        PrimeBitmapStore.class,
+        SegmentedParallelSieveAlgorithm.class,
+        SievePool.class,
+        SimpleSieveAlgorithm.class
+})
+@TestPropertySource(properties = {
+        "primes.max-allowed=1000000",
+        "primes.segment-size=" + SegmentedParallelSieveAlgorithm.MIN_SEGMENT_SIZE,
+        "primes.segment-cache-bytes=64"
+})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class PrimeIndexTest {
+
+    @Autowired
+    private PrimeIndex index;
+
+    @Autowired
+    private SimpleSieveAlgorithm simple;
+
+    @Test
+    void returnsEmptyForLessThan2() {
+        assertEquals(List.of(), index.computeUpTo(0));
+        assertEquals(List.of(), index.computeUpTo(1));
+    }
+
+    @Test
+    void smallerBound_isPrefixViewOfLargerOne() {
+        var large = index.computeArrayUpTo(1000);
+        var small = index.computeArrayUpTo(500);
+
+        assertEquals(simple.computeArrayUpTo(500), small);
+        assertSame(large.backingArray(), small.backingArray());
+        assertEquals(1000, index.bound());
+    }
+
+    @Test
+    void growsByTailOnly_andStaysCorrect() {
+        for (int max : new int[] {10, 11, 97, 98, 1_000, 4_099, 100_000}) {
+            assertEquals(simple.computeArrayUpTo(max), index.computeArrayUpTo(max), "max=" + max);
+        }
+        assertTrue(index.bound() >= 100_000);
+    }
+
+    @Test
+    void growthAcrossSeveralChunks_leavesEarlierViewsIntact() {
+        var before = index.computeArrayUpTo(50_000);
+        int[] snapshot = before.toArray();
+
+        // the tail (50,000, 300,000] spans ~25 chunks; it is appended past the published count
+        index.computeArrayUpTo(300_000);
+        assertTrue(300_000 - 50_000 > 5 * SegmentedParallelSieveAlgorithm.MIN_SEGMENT_SIZE);
+        assertArrayEquals(snapshot, before.toArray());
+        assertEquals(simple.computeArrayUpTo(300_000), index.computeArrayUpTo(300_000));
+        assertEquals(simple.computeArrayUpTo(50_000), index.computeArrayUpTo(50_000));
+    }
+
+    @Test
+    void growthIsCappedAtMaxAllowed() {
+        index.computeArrayUpTo(600_000);
+        index.computeArrayUpTo(600_001); // would double to 1.2M without the cap
+        assertEquals(1_000_000, index.bound());
+    }
+
+    @Test
+    void isPrime_usesBitmap() {
+        index.computeArrayUpTo(100);
+        assertTrue(index.isPrime(2));
+        assertTrue(index.isPrime(97));
+        assertFalse(index.isPrime(1));
+        assertFalse(index.isPrime(91));
+        assertFalse(index.isPrime(100));
+        assertThrows(IllegalArgumentException.class, () -> index.isPrime(index.bound() + 1));
+    }
+
+    @Test
+    void concurrentReadersDuringGrowth_seeConsistentPrefixes() {
+        var expected = simple.computeArrayUpTo(200_000);
+        IntStream.range(0, 200).parallel().forEach(i -> {
+            int max = ThreadLocalRandom.current().nextInt(200_001);
+            assertEquals(expected.upTo(max), index.computeArrayUpTo(max), "max=" + max);
+        });
+    }
+}
@@ -4,8 +4,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 @SpringBootTest(classes = {
         SegmentedParallelSieveAlgorithm.class,
+        SievePool.class,
         SimpleSieveAlgorithm.class
 })
 @TestPropertySource(properties = {
@@ -74,6 +80,41 @@ class SegmentedParallelSieveAlgorithmTest {
         assertEquals(expected, segmented.computeUpTo(100));
     }
 
+    @Test
+    void sieveWindow_sievesOnlyTheWindow() {
+        var all = simple.computeArrayUpTo(10_000);
+        assertEquals(all.between(9_000, 10_000), segmented.sieveWindow(9_000, 10_000));
+        assertEquals(List.of(2, 3, 5, 7), segmented.sieveWindow(0, 10).asList());
+        assertEquals(List.of(), segmented.sieveWindow(24, 28).asList());
+        assertEquals(List.of(), segmented.sieveWindow(50, 40).asList());
+    }
+
+    @Test
+    void computeRange_64bit_matchesIntWindowAndKnownLargePrimes() {
+        assertArrayEquals(segmented.sieveWindow(90_000, 120_000).toLongArray(), segmented.computeRange(90_000L, 120_000L));
+        // The primes in the last 100 integers below 10^14
+        assertArrayEquals(new long[] {
+                        99_999_999_999_923L, 99_999_999_999_929L, 99_999_999_999_931L,
+                        99_999_999_999_959L, 99_999_999_999_971L, 99_999_999_999_973L},
+                segmented.computeRange(99_999_999_999_900L, 100_000_000_000_000L));
+    }
+
+    @Test
+    void isqrt_isExactNearPerfectSquares() {
+        long r = 1_000_000_000L;
+        assertEquals(r, SegmentedParallelSieveAlgorithm.isqrt(r * r));
+        assertEquals(r - 1, SegmentedParallelSieveAlgorithm.isqrt(r * r - 1));
+        assertEquals(3_037_000_499L, SegmentedParallelSieveAlgorithm.isqrt(Long.MAX_VALUE));
+    }
+
+    @Test
+    void forEachSegment_emitsAllPrimesInOrder() {
+        // 50_000 spans several 10_000-wide segments (the minimum segment size)
+        List<Integer> streamed = new ArrayList<>();
+        segmented.forEachSegment(50_000, segment -> streamed.addAll(segment.asList()));
+        assertEquals(simple.computeUpTo(50_000), streamed);
+    }
+
     @Test
     void handlesLargeInputWithoutErrors() {
         int max = 1_000_000;
@@ -82,4 +123,247 @@ class SegmentedParallelSieveAlgorithmTest {
         assertEquals(result, result.stream().sorted().toList()); // still sorted
     }
 
+
+    // -------- odd-only block engine --------
+
+    @Test
+    void oddSegmentSieve_tinyBlocks_matchSimpleAcrossBlockAndChunkEdges() {
+        // 64-bit blocks (128 integers): primes above 64 are bucket-sieved, and most chunks span many blocks
+        var engine = new OddSegmentSieve(8);
+        int[] base = segmented.basePrimesUpTo(1_000);
+        var all = simple.computeArrayUpTo(1_000_000);
+
+        int[][] windows = {{0, 1}, {0, 2}, {2, 3}, {3, 3}, {4, 4}, {0, 127}, {0, 128}, {1, 129},
+                {100, 100_000}, {127, 257}, {999_000, 1_000_000}, {12_345, 987_654}};
+        for (int[] w : windows) {
+            assertArrayEquals(all.between(w[0], w[1]).toArray(), engine.sieveInts(w[0], w[1], base),
+                    "[" + w[0] + ", " + w[1] + "]");
+        }
+    }
+
+    @Test
+    void oddSegmentSieve_bits_countAndWriteTheSamePrimesAsTheList() {
+        var engine = new OddSegmentSieve(8);
+        int[] base = segmented.basePrimesUpTo(1_000);
+
+        int[][] windows = {{0, 1}, {2, 2}, {0, 2}, {1, 200}, {3, 3}, {100, 100_000}, {999_000, 1_000_000}};
+        for (int[] w : windows) {
+            int[] expected = engine.sieveInts(w[0], w[1], base);
+            var bits = engine.sieveBits(w[0], w[1], base);
+            assertEquals(expected.length, bits.count(), "[" + w[0] + ", " + w[1] + "]");
+
+            // written at an offset, as into a shared result array
+            int[] out = new int[expected.length + 3];
+            bits.writeInts(out, 3);
+            assertArrayEquals(expected, Arrays.copyOfRange(out, 3, out.length), "[" + w[0] + ", " + w[1] + "]");
+        }
+    }
+
+    @Test
+    void oddSegmentSieve_reusedWorkerState_doesNotLeakBetweenCalls() {
+        var engine = new OddSegmentSieve(8);
+        int[] base = segmented.basePrimesUpTo(1_000);
+
+        var first = engine.sieveInts(500_000, 600_000, base);
+        engine.sieveInts(0, 1_000, base);
+        assertArrayEquals(first, engine.sieveInts(500_000, 600_000, base));
+    }
+
+    @Test
+    void oddSegmentSieve_longWindows_useLargeBasePrimesFromBuckets() {
+        var engine = new OddSegmentSieve(64);
+        long low = 1_000_000_000_000L;
+        var bits = engine.sieveBits(low, low + 1_000, segmented.basePrimesUpTo(1_000_001));
+        long[] primes = new long[bits.count()];
+        bits.writeLongs(primes, 0);
+
+        // first primes above 10^12
+        assertEquals(1_000_000_000_039L, primes[0]);
+        assertEquals(1_000_000_000_061L, primes[1]);
+        for (long p : primes) assertTrue(PrimalityTester.millerRabin(p), p + " is not prime");
+    }
+
+    @Test
+    void oddSegmentSieve_scratchOfAFarOutWindow_isGivenBackAfterTheCall() {
+        // 64-bit blocks over 2 * 10^7 integers at 10^14: ~156k blocks, ~664k base primes filed into buckets
+        var engine = new OddSegmentSieve(8);
+        long low = 100_000_000_000_000L;
+        var bits = engine.sieveBits(low, low + 20_000_000, segmented.basePrimesUpTo(10_000_000));
+        assertTrue(bits.count() > 0);
+
+        // grown, the buckets alone would keep > 12 MB on this thread
+        assertTrue(engine.retainedScratchBytes() < 2 * 1024 * 1024, engine.retainedScratchBytes() + " B retained");
+    }
+
+    @Test
+    void oddSegmentSieve_stats_foldTheSameSequenceAsTheList() {
+        var engine = new OddSegmentSieve(8);
+        int[] base = segmented.basePrimesUpTo(1_000);
+
+        int[][] windows = {{0, 1}, {0, 2}, {2, 3}, {1, 200}, {127, 257}, {999_000, 1_000_000}};
+        for (int[] w : windows) {
+            var expected = new PrimeStats(6);
+            for (int p : engine.sieveInts(w[0], w[1], base)) expected.accept(p);
+            assertSameStats(expected, engine.stats(w[0], w[1], base, new PrimeStats(6)), "[" + w[0] + ", " + w[1] + "]");
+        }
+    }
+
+    // -------- aggregates --------
+
+    @Test
+    void stats_matchAggregatesOfTheFullList() {
+        int[] moduli = {2, 4, 30, 210};
+        for (int max : new int[] {0, 1, 2, 3, 100, 65_536, 1_000_000, 2_345_678}) {
+            int[] primes = simple.computeArrayUpTo(max).toArray();
+            var actual = segmented.stats(max, moduli);
+
+            assertEquals(primes.length, actual.count(), "count up to " + max);
+            assertEquals(BigInteger.valueOf(Arrays.stream(primes).asLongStream().sum()), actual.sum());
+            long twins = 0, maxGap = 0, after = 0;
+            for (int i = 1; i < primes.length; i++) {
+                int gap = primes[i] - primes[i - 1];
+                if (gap == 2) twins++;
+                if (gap > maxGap) {
+                    maxGap = gap;
+                    after = primes[i - 1];
+                }
+            }
+            assertEquals(twins, actual.twinPairs(), "twins up to " + max);
+            assertEquals(maxGap, actual.maxGap(), "gap up to " + max);
+            assertEquals(after, actual.maxGapAfter(), "gap up to " + max);
+            for (int m = 0; m < moduli.length; m++) {
+                long[] expected = new long[moduli[m]];
+                for (int p : primes) expected[p % moduli[m]]++;
+                assertArrayEquals(expected, actual.residues(m), "mod " + moduli[m] + " up to " + max);
+            }
+        }
+    }
+
+    @Test
+    void stats_mergeAcrossBorders_countsTwinsAndGapsThatStraddleThem() {
+        // 3 | 5 splits a twin pair, 23 | 29 splits the largest gap; an empty run merges as nothing
+        long[][] runs = {{2, 3}, {}, {5, 7, 11, 13}, {17, 19, 23}, {29, 31}};
+        var merged = new PrimeStats(4);
+        var whole = new PrimeStats(4);
+        for (long[] run : runs) {
+            var part = merged.emptyCopy();
+            for (long p : run) {
+                part.accept(p);
+                whole.accept(p);
+            }
+            merged.merge(part);
+        }
+        assertSameStats(whole, merged, "merged");
+        assertEquals(5, merged.twinPairs());
+        assertEquals(6, merged.maxGap());
+        assertEquals(23, merged.maxGapAfter());
+        assertArrayEquals(new long[] {0, 4, 1, 6}, merged.residues(0));
+    }
+
+    @Test
+    void stats_sumIsExactPast64Bits() {
+        var stats = new PrimeStats();
+        for (long p : new long[] {Long.MAX_VALUE - 24, Long.MAX_VALUE - 2, Long.MAX_VALUE}) stats.accept(p); // past 2^64
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(3)).subtract(BigInteger.valueOf(26)),
+                stats.sum());
+    }
+
+    private static void assertSameStats(PrimeStats expected, PrimeStats actual, String message) {
+        assertEquals(expected.count(), actual.count(), message);
+        assertEquals(expected.sum(), actual.sum(), message);
+        assertEquals(expected.twinPairs(), actual.twinPairs(), message);
+        assertEquals(expected.maxGap(), actual.maxGap(), message);
+        assertEquals(expected.maxGapAfter(), actual.maxGapAfter(), message);
+        for (int m = 0; m < expected.moduli().length; m++) {
+            assertArrayEquals(expected.residues(m), actual.residues(m), message);
+        }
+    }
+
+    // -------- paging by position --------
+
+    @Test
+    void primesByIndex_matchesPositionsInTheFullList() {
+        int[] all = simple.computeArrayUpTo(5_000_000).toArray();
+        int firstSegment = 82_025; // pi(2^20): the first prime of the second index segment
+
+        long[][] pages = {{0, 10}, {firstSegment - 5, 10}, {firstSegment, 1}, {300_000, 1_000}, {all.length - 7, 7}};
+        for (long[] page : pages) {
+            int offset = (int) page[0], limit = (int) page[1];
+            long[] expected = Arrays.stream(all, offset, offset + limit).asLongStream().toArray();
+            assertArrayEquals(expected, segmented.primesByIndex(offset, limit), "offset " + offset);
+        }
+    }
+
+    @Test
+    void primesByIndex_millionthPrime() {
+        assertArrayEquals(new long[]{15_485_863, 15_485_867}, segmented.primesByIndex(999_999, 2));
+        assertEquals(0, segmented.primesByIndex(999_999, 0).length);
+    }
+
+    @Test
+    void sieveFromTwo_fillsTheCountIndex_soPagesOnlySieveTheirWindow() {
+        var fresh = new SegmentedParallelSieveAlgorithm(new SievePool(1));
+        long window = 2L * SegmentCountIndex.SEGMENT_SPAN;
+        assertTrue(fresh.numbersToSieveForPage(100_000, 10) > window);
+
+        fresh.computeArrayUpTo(3_000_000); // covers two whole index segments, pi(2^21) = 155,611
+        assertEquals(window, fresh.numbersToSieveForPage(100_000, 10));
+        assertArrayEquals(segmented.primesByIndex(100_000, 10), fresh.primesByIndex(100_000, 10));
+    }
+
+    @Test
+    void countIndex_concurrentPagesAndSieves_publishEachSegmentOnce() {
+        var fresh = new SegmentedParallelSieveAlgorithm(new SievePool(2));
+        ReflectionTestUtils.setField(fresh, "retainBytes", 64L << 20);
+        long[] offsets = {150_000, 300_000, 450_000, 600_000};
+
+        // pages count segments outside the lock while sieves from 2 fold theirs in; overlaps are dropped
+        IntStream.range(0, 8).parallel().forEach(i -> {
+            if (i % 2 == 0) {
+                long offset = offsets[i / 2];
+                assertArrayEquals(segmented.primesByIndex(offset, 3), fresh.primesByIndex(offset, 3), "offset " + offset);
+            } else {
+                fresh.computeArrayUpTo(1_000_000 * (i + 1));
+            }
+        });
+        var index = (SegmentCountIndex) ReflectionTestUtils.getField(fresh, "countIndex");
+        int bound = (int) index.bound();
+        assertEquals(simple.computeArrayUpTo(bound).countUpTo(bound - 1), index.primes(), "primes below " + bound);
+    }
+
+    @Test
+    void incremental_largerBoundsOnlyExtend_smallerOnesAreViews() {
+        for (int max : new int[] {4_000_001, 4_000_002, 4_400_000, 5_000_000}) {
+            assertEquals(simple.computeArrayUpTo(max), segmented.computeArrayUpTo(max), "up to " + max);
+            assertTrue(segmented.retainedBound() >= max);
+        }
+
+        assertTrue(segmented.isCached(4_200_000));
+        assertEquals(simple.computeArrayUpTo(4_200_000), segmented.computeArrayUpTo(4_200_000));
+        assertEquals(5_500_000L - segmented.retainedBound(), segmented.numbersToSieve(5_500_000));
+    }
+
+    @Test
+    void incremental_boundsBeyondTheBudget_areBuiltFromTheKeptPrefixButNotKept() {
+        var fresh = new SegmentedParallelSieveAlgorithm(new SievePool(1));
+        ReflectionTestUtils.setField(fresh, "retainBytes", 4L * PrimeArray.maxPrimeCount(200_000));
+
+        fresh.computeArrayUpTo(100_000);
+        assertEquals(100_000, fresh.retainedBound());
+        fresh.computeArrayUpTo(200_000);
+        assertEquals(200_000, fresh.retainedBound());
+
+        assertEquals(simple.computeArrayUpTo(1_000_000), fresh.computeArrayUpTo(1_000_000));
+        assertEquals(200_000, fresh.retainedBound());
+        assertEquals(1_000_000 - 200_000, fresh.numbersToSieve(1_000_000));
+    }
+
+    @Test
+    void incremental_disabled_sievesFromTwoEveryTime() {
+        var fresh = new SegmentedParallelSieveAlgorithm(new SievePool(1)); // retain-bytes unset: 0
+        assertEquals(simple.computeArrayUpTo(50_000), fresh.computeArrayUpTo(50_000));
+        assertEquals(1, fresh.retainedBound());
+        assertFalse(fresh.isCached(50_000));
+        assertEquals(50_000, fresh.numbersToSieve(50_000));
+    }
 }
@@ -0,0 +1,57 @@
+package com.rbs.primenumbers.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bean-injected unit tests for the mod-30 wheel sieve.
+ * Outputs are cross-checked against the simple sieve.
+ */
+@SpringBootTest(classes = {
+        WheelSieveAlgorithm.class,
+        SimpleSieveAlgorithm.class
+})
+class WheelSieveAlgorithmTest {
+
+    @Autowired
+    private WheelSieveAlgorithm wheel;
+
+    @Autowired
+    private SimpleSieveAlgorithm simple;
+
+    @Test
+    void returnsEmptyForLessThan2() {
+        assertEquals(List.of(), wheel.computeUpTo(0));
+        assertEquals(List.of(), wheel.computeUpTo(1));
+    }
+
+    @Test
+    void handlesPrimesBelowTheWheel() {
+        assertEquals(List.of(2), wheel.computeUpTo(2));
+        assertEquals(List.of(2, 3), wheel.computeUpTo(4));
+        assertEquals(List.of(2, 3, 5), wheel.computeUpTo(6));
+        assertEquals(List.of(2, 3, 5, 7), wheel.computeUpTo(10));
+    }
+
+    @Test
+    void matchesSimpleForEveryBoundUpTo2000() {
+        // covers every residue mod 30 and every word boundary of the packed bitmap
+        for (int max = 0; max <= 2000; max++) {
+            assertEquals(simple.computeArrayUpTo(max), wheel.computeArrayUpTo(max), "max=" + max);
+        }
+    }
+
+    @Test
+    void matchesSimpleForLargeInput() {
+        int max = 1_000_000;
+        var result = wheel.computeArrayUpTo(max);
+        assertEquals(simple.computeArrayUpTo(max), result);
+        assertEquals(78_498, result.size());
+        assertEquals(999_983, result.get(result.size() - 1));
+    }
+}
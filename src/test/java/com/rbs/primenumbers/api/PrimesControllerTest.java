@@ -1,6 +1,8 @@
 package com.rbs.primenumbers.api;
 
 import com.rbs.primenumbers.App;
+import com.rbs.primenumbers.model.PrimeBinaryCodec;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.builder.ResponseSpecBuilder;
@@ -10,11 +12,20 @@ import io.restassured.specification.RequestSpecification;
 import io.restassured.specification.ResponseSpecification;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.test.context.TestPropertySource;
 
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
 import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.hamcrest.Matchers.*;
 
 @SpringBootTest(
@@ -33,6 +44,9 @@ class PrimesControllerTest {
     @LocalServerPort
     int port;
 
+    @Autowired
+    MeterRegistry registry;
+
     private RequestSpecification jsonReq;
     private ResponseSpecification okJson;
 
@@ -84,6 +98,16 @@ class PrimesControllerTest {
                 .body("primes", hasItems(2,3,5,7,11,13,17,19,23,29));
     }
 
+    @Test
+    void returnsPrimes_JSON_withExplicitAlgorithm_wheel() {
+        given().spec(jsonReq)
+                .queryParam("algorithm", "wheel")
+                .when().get("/api/v1/primes/30")
+                .then().spec(okJson)
+                .body("input", equalTo(30))
+                .body("primes", contains(2,3,5,7,11,13,17,19,23,29));
+    }
+
     @Test
     void contentNegotiation_XML_whenRequested() {
         given()
@@ -97,6 +121,281 @@ class PrimesControllerTest {
                 .body("PrimeResponse.count", equalTo("4"));
     }
 
+    @Test
+    void streaming_NDJSON_onePrimePerLine() {
+        String body =
+                given()
+                        .accept("application/x-ndjson")
+                        .when().get("/api/v1/primes/100")
+                        .then()
+                        .statusCode(200)
+                        .contentType(containsString("application/x-ndjson"))
+                        .extract().asString();
+
+        var lines = body.lines().map(Integer::valueOf).toList();
+        org.assertj.core.api.Assertions.assertThat(lines)
+                .isSorted()
+                .startsWith(2, 3, 5, 7)
+                .contains(97)
+                .hasSize(25);
+    }
+
+    @Test
+    void streaming_allowsBoundsAboveBufferedLimit() {
+        String last =
+                given()
+                        .accept("application/x-ndjson")
+                        .when().get("/api/v1/primes/1000100")
+                        .then()
+                        .statusCode(200)
+                        .extract().asString()
+                        .lines().reduce((a, b) -> b).orElseThrow();
+
+        org.assertj.core.api.Assertions.assertThat(last).isEqualTo("1000099");
+    }
+
+    @Test
+    void streaming_abortedByClient_releasesItsAdmissionBudget() throws Exception {
+        try (var socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(("GET /api/v1/primes/100000000 HTTP/1.1\r\nHost: localhost\r\n"
+                    + "Accept: application/x-ndjson\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            assertTrue(socket.getInputStream().read(new byte[64]) > 0); // streaming has started
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (memoryInUse() > 0 && System.nanoTime() < deadline) Thread.sleep(20);
+        assertEquals(0.0, memoryInUse());
+        assertEquals(0.0, registry.get("primes.admission.cpu-in-use").gauge().value());
+    }
+
+    private double memoryInUse() {
+        return registry.get("primes.admission.memory-in-use").gauge().value();
+    }
+
+    @Test
+    void streaming_errorsAreReturnedAsJson() {
+        given()
+                .accept("application/x-ndjson")
+                .when().get("/api/v1/primes/-1")
+                .then()
+                .statusCode(400)
+                .contentType(ContentType.JSON);
+    }
+
+    @Test
+    void range_returnsOnlyPrimesInWindow() {
+        given().spec(jsonReq)
+                .queryParam("from", 90)
+                .queryParam("to", 110)
+                .when().get("/api/v1/primes/range")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("from", equalTo(90))
+                .body("to", equalTo(110))
+                .body("count", equalTo(5))
+                .body("primes", contains(97, 101, 103, 107, 109));
+    }
+
+    @Test
+    void range_farBeyondMaxAllowed_isLimitedByWindowOnly() {
+        given().spec(jsonReq)
+                .queryParam("from", 2_147_483_000)
+                .queryParam("to", 2_147_483_647)
+                .queryParam("algorithm", "segmented")
+                .when().get("/api/v1/primes/range")
+                .then()
+                .statusCode(200)
+                .body("primes", hasItem(2_147_483_647)); // 2^31 - 1 is prime
+    }
+
+    @Test
+    void range_fromGreaterThanTo_returns400() {
+        given().spec(jsonReq)
+                .queryParam("from", 50)
+                .queryParam("to", 10)
+                .when().get("/api/v1/primes/range")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void batch_returnsOneItemPerBoundThenRange() {
+        given().spec(jsonReq)
+                .contentType(ContentType.JSON)
+                .body("{\"bounds\": [10, 1000, 100000], \"ranges\": [{\"from\": 90, \"to\": 110}]}")
+                .when().post("/api/v1/primes/batch")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("sievedUpTo", equalTo(100_000))
+                .body("items.count", contains(4, 168, 9_592, 5))
+                .body("items[0].primes", contains(2, 3, 5, 7))
+                .body("items[3].from", equalTo(90))
+                .body("items[3].primes", contains(97, 101, 103, 107, 109));
+    }
+
+    @Test
+    void batch_countsOnly_leavesPrimesOut() {
+        given().spec(jsonReq)
+                .contentType(ContentType.JSON)
+                .body("{\"bounds\": [1000, 10000], \"countsOnly\": true}")
+                .when().post("/api/v1/primes/batch")
+                .then()
+                .statusCode(200)
+                .body("items.count", contains(168, 1_229))
+                .body("items[0]", not(hasKey("primes")));
+    }
+
+    @Test
+    void batch_binary_decodesToTheSameItems() {
+        byte[] body = given()
+                .accept(PrimeBinaryCodec.BATCH_VALUE)
+                .contentType(ContentType.JSON)
+                .body("{\"bounds\": [1000, 30], \"ranges\": [{\"from\": 90, \"to\": 110}]}")
+                .when().post("/api/v1/primes/batch")
+                .then()
+                .statusCode(200)
+                .contentType(PrimeBinaryCodec.BATCH_VALUE)
+                .extract().asByteArray();
+
+        var items = PrimeBinaryCodec.decodeBatch(body);
+        assertEquals(3, items.size());
+        assertEquals(168, items.get(0).count());
+        assertArrayEquals(new int[]{2, 3, 5, 7, 11, 13, 17, 19, 23, 29}, items.get(1).primes());
+        assertEquals(90, items.get(2).from());
+        assertEquals(110, items.get(2).max());
+        assertArrayEquals(new int[]{97, 101, 103, 107, 109}, items.get(2).primes());
+    }
+
+    @Test
+    void batch_aboveMaxAllowed_returns422_andEmpty_returns400() {
+        given().spec(jsonReq)
+                .contentType(ContentType.JSON)
+                .body("{\"bounds\": [10, 2000000]}")
+                .when().post("/api/v1/primes/batch")
+                .then()
+                .statusCode(422);
+
+        given().spec(jsonReq)
+                .contentType(ContentType.JSON)
+                .body("{}")
+                .when().post("/api/v1/primes/batch")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void page_returnsPrimesByPosition_withNextOffset() {
+        given().spec(jsonReq)
+                .queryParam("offset", 1_000_000)
+                .queryParam("limit", 5)
+                .when().get("/api/v1/primes/page")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("offset", equalTo(1_000_000))
+                .body("count", equalTo(5))
+                .body("nextOffset", equalTo(1_000_005))
+                .body("primes", contains(15_485_867, 15_485_917, 15_485_927, 15_485_933, 15_485_941));
+    }
+
+    @Test
+    void page_limitAboveMax_returns422() {
+        given().spec(jsonReq)
+                .queryParam("limit", 1_000_000)
+                .when().get("/api/v1/primes/page")
+                .then()
+                .statusCode(422);
+    }
+
+    @Test
+    void nth_returnsOnlyThePrime() {
+        given().spec(jsonReq)
+                .when().get("/api/v1/primes/nth/10000000")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("n", equalTo(10_000_000))
+                .body("prime", equalTo(179_424_673));
+    }
+
+    @Test
+    void nth_zero_returns400() {
+        given().spec(jsonReq)
+                .when().get("/api/v1/primes/nth/0")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void count_returnsPiOfMax_withoutPrimeList() {
+        given().spec(jsonReq)
+                .when().get("/api/v1/primes/10000000000/count")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("input", equalTo(10_000_000_000L))
+                .body("count", equalTo(455_052_511))
+                .body("primes", nullValue());
+    }
+
+    @Test
+    void stats_returnsRequestedAggregates_withoutPrimeList() {
+        given().spec(jsonReq)
+                .queryParam("metrics", "sum,twins,maxGap,mod:4")
+                .when().get("/api/v1/primes/100/stats")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("input", equalTo(100))
+                .body("count", equalTo(25))
+                .body("sum", equalTo(1060))
+                .body("twinPairs", equalTo(8))
+                .body("maxGap.gap", equalTo(8))
+                .body("maxGap.after", equalTo(89))
+                .body("maxGap.before", equalTo(97))
+                .body("residues[0].modulus", equalTo(4))
+                .body("residues[0].counts", contains(0, 11, 1, 13))
+                .body("primes", nullValue())
+                .header("Server-Timing", allOf(
+                        containsString("base;dur="),
+                        containsString("sieve;dur="),
+                        containsString("compute;dur=")));
+    }
+
+    @Test
+    void stats_onlyRequestedMetrics_andUnknownMetricIs400() {
+        given().spec(jsonReq)
+                .queryParam("metrics", "twins")
+                .when().get("/api/v1/primes/1000/stats")
+                .then()
+                .statusCode(200)
+                .body("twinPairs", equalTo(35))
+                .body("sum", nullValue())
+                .body("maxGap", nullValue())
+                .body("residues", nullValue());
+
+        given().spec(jsonReq)
+                .queryParam("metrics", "median")
+                .when().get("/api/v1/primes/1000/stats")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void primalityTest_returnsOneBooleanPerValue() {
+        given().spec(jsonReq)
+                .contentType(ContentType.JSON)
+                .body("[2, 91, 97, 1000000007, 2305843009213693951]")
+                .when().post("/api/v1/primes/test")
+                .then()
+                .statusCode(200)
+                .contentType(ContentType.JSON)
+                .body("results", contains(true, false, true, true, true));
+    }
+
     @Test
     void validationError_whenNegativeInput_returns400() {
         given().spec(jsonReq)
@@ -127,7 +426,7 @@ class PrimesControllerTest {
                         .get("/api/v1/primes/50")
                         .then()
                         .statusCode(200)
-                        .header("ETag", not(isEmptyOrNullString()))
+                        .header("ETag", not(emptyOrNullString()))
                         .header("Cache-Control", containsString("max-age"))
                         .extract().header("ETag");
 
@@ -143,6 +442,96 @@ class PrimesControllerTest {
                 .body(emptyString());
     }
 
+    @Test
+    void caching_secondCall_isServedFromStoredBody() {
+        String first =
+                given().spec(jsonReq)
+                        .queryParam("cache", true)
+                        .queryParam("algorithm", "wheel")
+                        .when()
+                        .get("/api/v1/primes/5000")
+                        .then()
+                        .spec(okJson)
+                        .header("Server-Timing", not(emptyOrNullString()))
+                        .header("Vary", containsString("Accept-Encoding"))
+                        .extract().asString();
+
+        String second =
+                given().spec(jsonReq)
+                        .queryParam("cache", true)
+                        .queryParam("algorithm", "wheel")
+                        .when()
+                        .get("/api/v1/primes/5000")
+                        .then()
+                        .spec(okJson)
+                        .header("Server-Timing", nullValue())
+                        .extract().asString();
+
+        assertEquals(first, second, "same bytes, including computedAt");
+    }
+
+    @Test
+    void caching_negotiatesTheSameMediaTypeAsTheUncachedPath() {
+        String[] accepts = {
+                "application/*;q=0.8, application/xml;q=0.8",
+                "*/*;q=0.9, application/xml;q=0.9",
+                "application/xml;q=0.8, application/*;q=0.8",
+                "application/json;q=0.5, application/xml;q=0.9",
+                "text/*, application/json;q=0.5"
+        };
+        for (String accept : accepts) {
+            String expected = given().accept(accept)
+                    .when().get("/api/v1/primes/30")
+                    .then().statusCode(200)
+                    .extract().contentType();
+            given().accept(accept)
+                    .queryParam("cache", true)
+                    .when().get("/api/v1/primes/30")
+                    .then().statusCode(200)
+                    .contentType(startsWith(expected.split(";")[0]));
+        }
+    }
+
+    @Test
+    void caching_gzipAndXml_getTheirOwnETags() {
+        String gzipTag =
+                given().spec(jsonReq)
+                        .header("Accept-Encoding", "gzip")
+                        .queryParam("cache", true)
+                        .queryParam("algorithm", "simple")
+                        .when()
+                        .get("/api/v1/primes/2000")
+                        .then()
+                        .spec(okJson)
+                        .header("Content-Encoding", "gzip")
+                        .body("count", equalTo(303))
+                        .extract().header("ETag");
+
+        String xmlTag =
+                given().accept(ContentType.XML)
+                        .queryParam("cache", true)
+                        .queryParam("algorithm", "simple")
+                        .when()
+                        .get("/api/v1/primes/2000")
+                        .then()
+                        .statusCode(200)
+                        .contentType(ContentType.XML)
+                        .extract().header("ETag");
+
+        assertEquals("\"primes-2000-simple-v1-gzip\"", gzipTag);
+        assertTrue(xmlTag.startsWith("\"primes-2000-simple-v1-xml"), xmlTag);
+
+        // a client holding either JSON representation revalidates without a recompute
+        given().spec(jsonReq)
+                .queryParam("cache", true)
+                .queryParam("algorithm", "simple")
+                .header("If-None-Match", "W/" + gzipTag)
+                .when()
+                .get("/api/v1/primes/2000")
+                .then()
+                .statusCode(304);
+    }
+
     @Test
     void invalidAlgorithm_returns400() {
         given().spec(jsonReq)
@@ -167,4 +556,80 @@ class PrimesControllerTest {
                 .contains(97)
                 .hasSize(25);
     }
+
+    @Test
+    void serverTimingHeader_carriesComputePhases() {
+        given().spec(jsonReq)
+                .queryParam("algorithm", "segmented")
+                .when().get("/api/v1/primes/50000")
+                .then().statusCode(200)
+                .header("Server-Timing", allOf(
+                        containsString("base;dur="),
+                        containsString("sieve;dur="),
+                        containsString("assembly;dur="),
+                        containsString("compute;dur=")));
+    }
+
+    @Test
+    void computeAndSerializationTimers_areExposedViaActuator() {
+        given().spec(jsonReq).when().get("/api/v1/primes/1000").then().statusCode(200);
+
+        given().spec(jsonReq)
+                .when().get("/actuator/metrics/primes.compute")
+                .then().statusCode(200)
+                .body("availableTags.tag", hasItems("algorithm", "cache", "bucket"));
+
+        given().spec(jsonReq)
+                .queryParam("tag", "type:PrimeResponse")
+                .when().get("/actuator/metrics/primes.serialization")
+                .then().statusCode(200)
+                .body("measurements.find { it.statistic == 'COUNT' }.value", greaterThanOrEqualTo(1f));
+    }
+
+    @Test
+    void deltaVarint_decodesToTheSamePrimesAsJson() {
+        var json = given().spec(jsonReq)
+                .when().get("/api/v1/primes/10000")
+                .then().statusCode(200)
+                .extract().jsonPath().getList("primes", Integer.class);
+
+        byte[] body = given()
+                .accept(PrimeBinaryCodec.DELTA_VARINT_VALUE)
+                .when().get("/api/v1/primes/10000")
+                .then().statusCode(200)
+                .contentType(PrimeBinaryCodec.DELTA_VARINT_VALUE)
+                .extract().asByteArray();
+
+        var decoded = PrimeBinaryCodec.decode(body);
+        assertEquals(10_000L, decoded.max());
+        assertEquals(json, Arrays.stream(decoded.primes()).boxed().toList());
+    }
+
+    @Test
+    void bitmap_decodesToTheSamePrimesAsJson_forEveryAlgorithm() {
+        var json = given().spec(jsonReq)
+                .when().get("/api/v1/primes/5000")
+                .then().statusCode(200)
+                .extract().jsonPath().getList("primes", Integer.class);
+
+        for (String algorithm : new String[] {"simple", "segmented", "wheel", "indexed"}) {
+            byte[] body = given()
+                    .accept(PrimeBinaryCodec.BITMAP_VALUE)
+                    .queryParam("algorithm", algorithm)
+                    .when().get("/api/v1/primes/5000")
+                    .then().statusCode(200)
+                    .contentType(PrimeBinaryCodec.BITMAP_VALUE)
+                    .extract().asByteArray();
+
+            assertEquals(json, Arrays.stream(PrimeBinaryCodec.decode(body).primes()).boxed().toList(), algorithm);
+        }
+    }
+
+    @Test
+    void binaryFormats_reportErrorsAsJson() {
+        given().accept(PrimeBinaryCodec.BITMAP_VALUE)
+                .when().get("/api/v1/primes/1000001")
+                .then().statusCode(422)
+                .contentType(ContentType.JSON);
+    }
 }
@@ -0,0 +1,98 @@
+package com.rbs.primenumbers.api;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBodyCacheTest {
+
+    private static final String JSON = "application/json";
+
+    private static byte[] body(int size) {
+        return "[2,3,5,7]".repeat(size / 9 + 1).substring(0, size).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void miss_thenHit_returnsStoredBytes() {
+        var cache = new ResponseBodyCache(1 << 20, new SimpleMeterRegistry());
+        assertNull(cache.get(100, "simple", JSON, false));
+
+        byte[] identity = body(1000);
+        var sent = cache.put(100, "simple", JSON, identity, false);
+        assertSame(identity, sent.bytes());
+
+        var hit = cache.get(100, "simple", JSON, false);
+        assertSame(identity, hit.bytes());
+        assertEquals(ResponseBodyCache.IDENTITY, hit.encoding());
+        assertNull(cache.get(100, "wheel", JSON, false), "algorithm is part of the key");
+    }
+
+    @Test
+    void gzipVariant_roundTripsToIdentity() throws IOException {
+        var cache = new ResponseBodyCache(1 << 20, new SimpleMeterRegistry());
+        byte[] identity = body(10_000);
+        cache.put(1000, "simple", JSON, identity, false);
+
+        var gzipped = cache.get(1000, "simple", JSON, true);
+        assertEquals(ResponseBodyCache.GZIP, gzipped.encoding());
+        assertTrue(gzipped.bytes().length < identity.length);
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(gzipped.bytes()))) {
+            assertArrayEquals(identity, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void smallBodies_areNotGzipped() {
+        var cache = new ResponseBodyCache(1 << 20, new SimpleMeterRegistry());
+        var sent = cache.put(10, "simple", JSON, body(20), true);
+        assertEquals(ResponseBodyCache.IDENTITY, sent.encoding());
+        assertEquals(ResponseBodyCache.IDENTITY, cache.get(10, "simple", JSON, true).encoding());
+    }
+
+    @Test
+    void evictsByBytes_notByEntries() {
+        // room for about three 100 KB bodies (identity + gzip each)
+        var cache = new ResponseBodyCache(300_000, new SimpleMeterRegistry());
+        for (int max = 1; max <= 20; max++) {
+            cache.put(max, "simple", JSON, body(100_000), false);
+        }
+        int present = 0;
+        for (int max = 1; max <= 20; max++) {
+            if (cache.get(max, "simple", JSON, false) != null) present++;
+        }
+        assertTrue(present > 0 && present <= 3, "identity bodies kept: " + present);
+    }
+
+    @Test
+    void zeroBudget_disablesCaching() {
+        var cache = new ResponseBodyCache(0, new SimpleMeterRegistry());
+        cache.put(100, "simple", JSON, body(1000), false);
+        assertNull(cache.get(100, "simple", JSON, false));
+    }
+
+    @Test
+    void etag_isPerRepresentation() {
+        assertEquals("\"primes-50-simple-v1\"", ResponseBodyCache.etag(50, "simple", JSON, ResponseBodyCache.IDENTITY));
+        assertEquals("\"primes-50-simple-v1-gzip\"", ResponseBodyCache.etag(50, "simple", JSON, ResponseBodyCache.GZIP));
+        assertEquals("\"primes-50-simple-v1-xml\"",
+                ResponseBodyCache.etag(50, "simple", "application/xml", ResponseBodyCache.IDENTITY));
+    }
+
+    @Test
+    void hitRatio_isPublished() {
+        var registry = new SimpleMeterRegistry();
+        var cache = new ResponseBodyCache(1 << 20, registry);
+        cache.get(7, "simple", JSON, false);
+        cache.put(7, "simple", JSON, body(500), false);
+        cache.get(7, "simple", JSON, false);
+
+        assertEquals(0.5, registry.get("primes.response-cache.hit-ratio").gauge().value(), 1e-9);
+        assertTrue(registry.get("primes.response-cache.bytes").gauge().value() > 500);
+    }
+}
@@ -0,0 +1,108 @@
+package com.rbs.primenumbers.domain;
+
+import com.rbs.primenumbers.algorithm.SegmentedParallelSieveAlgorithm;
+import com.rbs.primenumbers.algorithm.SievePool;
+import com.rbs.primenumbers.algorithm.SimpleSieveAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Budget accounting, queueing and rejection of the admission controller. */
+class AdmissionControllerTest {
+
+    private final SievePool pool = new SievePool(2);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // 1000 bytes of memory, 1000 units of CPU, 200 ms queue
+    private final AdmissionController admission = new AdmissionController(1_000, 1_000, 200, pool, registry);
+
+    @AfterEach
+    void shutdown() {
+        pool.pool().shutdownNow();
+    }
+
+    @Test
+    void admitsWhileBothBudgetsFit() {
+        try (var a = admission.admit(new AdmissionController.Cost(400, 400));
+             var b = admission.admit(new AdmissionController.Cost(600, 600))) {
+            assertEquals(1_000.0, registry.get("primes.admission.memory-in-use").gauge().value());
+            assertEquals(1_000.0, registry.get("primes.admission.cpu-in-use").gauge().value());
+        }
+        assertEquals(0.0, registry.get("primes.admission.cpu-in-use").gauge().value());
+    }
+
+    @Test
+    void rejectsWithRetryAfter_onceTheQueueTimeoutPasses() {
+        try (var held = admission.admit(new AdmissionController.Cost(10, 900))) {
+            var ex = assertThrows(AdmissionController.CapacityExceededException.class,
+                    () -> admission.admit(new AdmissionController.Cost(10, 200)));
+            assertTrue(ex.getRetryAfterSeconds() >= 1);
+        }
+        assertEquals(1.0, registry.get("primes.admission.rejected").counter().count());
+    }
+
+    @Test
+    void queuedRequest_runsAsSoonAsCapacityIsReleased() throws Exception {
+        var held = admission.admit(new AdmissionController.Cost(900, 10));
+        var queued = CompletableFuture.supplyAsync(() -> admission.admit(new AdmissionController.Cost(500, 10)));
+
+        Thread.sleep(50);
+        assertFalse(queued.isDone());
+        held.close();
+
+        queued.get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void oversizedRequest_isChargedTheWholeBudgetAndRunsAlone() {
+        try (var big = admission.admit(new AdmissionController.Cost(1_000_000, 1_000_000))) {
+            assertThrows(AdmissionController.CapacityExceededException.class,
+                    () -> admission.admit(new AdmissionController.Cost(1, 1)));
+        }
+        assertDoesNotThrow(() -> admission.admit(new AdmissionController.Cost(1, 1)).close());
+    }
+
+    @Test
+    void closingTwice_releasesOnce() {
+        var permit = admission.admit(new AdmissionController.Cost(500, 500));
+        permit.close();
+        permit.close();
+        assertEquals(0.0, registry.get("primes.admission.memory-in-use").gauge().value());
+    }
+
+    @Test
+    void sieveCost_dependsOnAlgorithmShape() {
+        var segmented = new SegmentedParallelSieveAlgorithm(pool);
+        var simple = new SimpleSieveAlgorithm();
+
+        var windowed = admission.sieveCost(segmented, 100_000_000);
+        var whole = admission.sieveCost(simple, 100_000_000);
+        assertEquals(100_000_000, windowed.cpuUnits());
+        assertTrue(whole.memoryBytes() > 100_000_000 / 8, "whole-range sieve holds a bit per integer");
+
+        var range = admission.rangeCost(segmented, 1_000_000_000_000L, 1_000_000_100_000L);
+        assertTrue(range.cpuUnits() < 2_000_000, "window sieve pays for the window and sqrt(to) only");
+        assertEquals(AdmissionController.Cost.FREE, admission.sieveCost(simple, 1));
+    }
+
+    @Test
+    void batchCost_paysForTheSieveOnceAndForEveryItemsOutput() {
+        var segmented = new SegmentedParallelSieveAlgorithm(pool);
+        var sieve = admission.sieveCost(segmented, 1_000_000);
+        var one = admission.batchCost(segmented, 1_000_000, List.of(new PrimesService.Slice(0, 1_000_000)));
+        var hundred = admission.batchCost(segmented, 1_000_000,
+                Collections.nCopies(100, new PrimesService.Slice(0, 1_000_000)));
+
+        assertEquals(sieve.cpuUnits(), hundred.cpuUnits(), "one sieve however many items");
+        long output = one.memoryBytes() - sieve.memoryBytes();
+        assertTrue(output > 78_498L * Long.BYTES, "an item pays for the primes it lists");
+        assertEquals(sieve.memoryBytes() + 100 * output, hundred.memoryBytes());
+    }
+}
@@ -0,0 +1,93 @@
+package com.rbs.primenumbers.domain;
+
+import com.rbs.primenumbers.algorithm.PrimeAlgorithm;
+import com.rbs.primenumbers.algorithm.SegmentedParallelSieveAlgorithm;
+import com.rbs.primenumbers.algorithm.SievePool;
+import com.rbs.primenumbers.algorithm.SimpleSieveAlgorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Learning, load scaling and exploration of the "auto" algorithm selection. */
+class AlgorithmSelectorTest {
+
+    private final SievePool pool = new SievePool(4);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final SimpleSieveAlgorithm simple = new SimpleSieveAlgorithm();
+    private final SegmentedParallelSieveAlgorithm segmented = new SegmentedParallelSieveAlgorithm(pool);
+    private final List<PrimeAlgorithm> candidates = List.of(simple, segmented);
+
+    @AfterEach
+    void shutdown() {
+        pool.pool().shutdownNow();
+    }
+
+    private AlgorithmSelector selector(double exploreRate) {
+        return new AlgorithmSelector(exploreRate, 0.5, pool, registry);
+    }
+
+    private void train(AlgorithmSelector selector, long max, long simpleNanos, long segmentedNanos) {
+        for (int i = 0; i < AlgorithmSelector.MIN_SAMPLES; i++) {
+            selector.record("array", simple, max, simpleNanos, 0);
+            selector.record("array", segmented, max, segmentedNanos, 0);
+        }
+    }
+
+    @Test
+    void triesEveryCandidateBeforeTrustingAverages() {
+        var selector = selector(0);
+        assertSame(simple, selector.choose("array", 1_000, candidates, 0));
+
+        for (int i = 0; i < AlgorithmSelector.MIN_SAMPLES; i++) selector.record("array", simple, 1_000, 10, 0);
+        assertSame(segmented, selector.choose("array", 1_000, candidates, 0));
+        assertEquals(2.0, registry.get("primes.auto.choice").tag("reason", "warmup").counters()
+                .stream().mapToDouble(Counter::count).sum());
+    }
+
+    @Test
+    void picksTheFastestPerBucket() {
+        var selector = selector(0);
+        train(selector, 100, 1_000, 50_000);          // small max: simple wins
+        train(selector, 1_000_000, 40_000_000, 9_000_000); // large max: segmented wins
+
+        assertSame(simple, selector.choose("array", 500, candidates, 0));
+        assertSame(segmented, selector.choose("array", 3_000_000, candidates, 0));
+    }
+
+    @Test
+    void busyPool_penalizesParallelAlgorithms() {
+        var selector = selector(0);
+        train(selector, 1_000_000, 20_000_000, 9_000_000);
+
+        assertSame(segmented, selector.choose("array", 1_000_000, candidates, 0));
+        // all 4 workers busy: segmented would get one core, ~36 ms expected
+        assertSame(simple, selector.choose("array", 1_000_000, candidates, 4));
+        assertEquals(4.0, selector.slowdown(segmented, 4));
+        assertEquals(1.0, selector.slowdown(simple, 4));
+    }
+
+    @Test
+    void samplesTakenUnderLoad_areNormalizedToAnIdlePool() {
+        var selector = selector(0);
+        for (int i = 0; i < AlgorithmSelector.MIN_SAMPLES; i++) {
+            selector.record("array", simple, 1_000_000, 20_000_000, 0);
+            selector.record("array", segmented, 1_000_000, 36_000_000, 3); // 4x slower with 3 of 4 busy
+        }
+        assertSame(segmented, selector.choose("array", 1_000_000, candidates, 0));
+    }
+
+    @Test
+    void explores_anotherCandidate() {
+        var selector = selector(1.0);
+        train(selector, 100, 1_000, 50_000);
+
+        assertSame(segmented, selector.choose("array", 100, candidates, 0));
+        assertEquals(1.0, registry.get("primes.auto.choice").tag("reason", "explore").counter().count());
+    }
+}
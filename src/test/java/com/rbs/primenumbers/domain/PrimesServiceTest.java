@@ -1,13 +1,34 @@
 package com.rbs.primenumbers.domain;
 
+import com.rbs.primenumbers.algorithm.NthPrimeFinder;
+import com.rbs.primenumbers.algorithm.PrimalityTester;
+import com.rbs.primenumbers.algorithm.PrimeAlgorithm;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.PrimeBitmapStore;
+import com.rbs.primenumbers.algorithm.PrimeCounter;
+import com.rbs.primenumbers.algorithm.PrimeIndex;
 import com.rbs.primenumbers.algorithm.SimpleSieveAlgorithm;
 import com.rbs.primenumbers.algorithm.SegmentedParallelSieveAlgorithm;
+import com.rbs.primenumbers.algorithm.SievePool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.stereotype.Component;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,7 +39,18 @@ import static org.junit.jupiter.api.Assertions.*;
 @SpringBootTest(classes = {
         PrimesService.class,
         SimpleSieveAlgorithm.class,
-        SegmentedParallelSieveAlgorithm.class
+        SegmentedParallelSieveAlgorithm.class,
+        SievePool.class,
+        PrimeCounter.class,
+        NthPrimeFinder.class,
+        PrimalityTester.class,
+        PrimeIndex.class,
+        PrimeBitmapStore.class,
+        ComputeMetrics.class,
+        AdmissionController.class,
+        AlgorithmSelector.class,
+        SimpleMeterRegistry.class,
+        PrimesServiceTest.GatedAlgorithm.class
 })
 @TestPropertySource(properties = {
         "primes.max-allowed=1000000",
@@ -30,6 +62,35 @@ class PrimesServiceTest {
     @Autowired
     private PrimesService service;
 
+    @Autowired
+    private MeterRegistry registry;
+
+    @Autowired
+    private GatedAlgorithm gated;
+
+    /** Blocks every computation until released, and counts how many actually ran. */
+    @Component("gated")
+    static class GatedAlgorithm implements PrimeAlgorithm {
+        final AtomicInteger runs = new AtomicInteger();
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile RuntimeException failure;
+
+        @Override
+        public PrimeArray computeArrayUpTo(int max) {
+            runs.incrementAndGet();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) throw failure;
+            return PrimeArray.of(2, 3, 5, 7);
+        }
+
+        @Override
+        public String name() { return "gated"; }
+    }
+
     // -------- guardUpperBound --------
 
     @Test
@@ -55,7 +116,7 @@ class PrimesServiceTest {
     @Test
     void compute_usesDefaultAlgorithm_whenNoneProvided() {
         var primes = service.compute(10, null);
-        assertEquals(List.of(2, 3, 5, 7), primes);
+        assertEquals(List.of(2, 3, 5, 7), primes.asList());
     }
 
     @Test
@@ -79,6 +140,180 @@ class PrimesServiceTest {
         assertEquals(simple, segmented, "Segmented output should match simple output");
     }
 
+    @Test
+    void compute_auto_learnsAndStillMatchesSimple() {
+        var expected = service.compute(50_000, "simple");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected, service.compute(50_000, "auto"));
+        }
+        assertTrue(registry.find("primes.auto.choice").counters().size() >= 2, "every candidate was tried");
+    }
+
+    // -------- computeRange --------
+
+    @Test
+    void computeRange_auto_onlyPicksWindowCapableAlgorithms() {
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(new long[]{1_000_000_000_039L}, service.computeRange(1_000_000_000_000L, 1_000_000_000_050L, "auto"));
+        }
+    }
+
+    @Test
+    void computeRange_segmented_isLimitedByWindowNotMax() {
+        var primes = service.computeRange(1_000_000_000, 1_000_000_010, "segmented");
+        assertArrayEquals(new long[] {1_000_000_007, 1_000_000_009}, primes);
+    }
+
+    @Test
+    void computeRange_simple_isLimitedByMaxAllowed() {
+        assertArrayEquals(new long[] {11, 13, 17, 19}, service.computeRange(10, 20, "simple"));
+        assertThrows(PrimesService.UpperBoundExceededException.class,
+                () -> service.computeRange(1_000_000_000, 1_000_000_100, "simple"));
+    }
+
+    @Test
+    void computeRange_rejectsTooWideWindow() {
+        var ex = assertThrows(PrimesService.UpperBoundExceededException.class,
+                () -> service.computeRange(0, 20_000_000, "segmented"));
+        assertTrue(ex.getMessage().contains("range width"));
+    }
+
+    @Test
+    void computeRange_segmented_handles64BitWindows() {
+        // 10^12 + 39 is the first prime after 10^12
+        var primes = service.computeRange(1_000_000_000_000L, 1_000_000_000_040L, "segmented");
+        assertArrayEquals(new long[] {1_000_000_000_039L}, primes);
+    }
+
+    @Test
+    void computeRange_rejectsBoundAboveMaxRangeBound() {
+        assertThrows(PrimesService.UpperBoundExceededException.class,
+                () -> service.computeRange(Long.MAX_VALUE - 100, Long.MAX_VALUE, "segmented"));
+    }
+
+    @Test
+    void computeRange_rejectsInvertedBounds() {
+        assertThrows(IllegalArgumentException.class, () -> service.computeRange(20, 10, "segmented"));
+    }
+
+    // -------- stats --------
+
+    @Test
+    void stats_defaultMetrics_andRequestedModuli() {
+        var stats = service.stats(100, null);
+        assertEquals(Set.of("sum", "twins", "maxGap"), stats.metrics());
+        assertEquals(25, stats.values().count());
+        assertEquals(0, stats.values().moduli().length);
+
+        var mod = service.stats(100, "twins, mod:4,mod:4,mod:3");
+        assertEquals(Set.of("twins"), mod.metrics());
+        assertArrayEquals(new int[] {4, 3}, mod.values().moduli());
+        assertArrayEquals(new long[] {0, 11, 1, 13}, mod.values().residues(0));
+    }
+
+    @Test
+    void limitsWhoseSquareRootOverflowsAnInt_failAtStartup() {
+        long configured = (long) ReflectionTestUtils.getField(service, "maxRangeBound");
+        try {
+            ReflectionTestUtils.setField(service, "maxRangeBound", SegmentedParallelSieveAlgorithm.MAX_BOUND);
+            assertDoesNotThrow(service::checkLimits);
+
+            ReflectionTestUtils.setField(service, "maxRangeBound", SegmentedParallelSieveAlgorithm.MAX_BOUND + 1);
+            var e = assertThrows(IllegalStateException.class, service::checkLimits);
+            assertTrue(e.getMessage().contains("primes.range.max-bound"), e.getMessage());
+        } finally {
+            ReflectionTestUtils.setField(service, "maxRangeBound", configured);
+        }
+    }
+
+    @Test
+    void stats_isTimedLikeACompute() {
+        long before = registry.find("primes.compute").tag("algorithm", "segmented").timers()
+                .stream().mapToLong(Timer::count).sum();
+
+        service.stats(200_000, "sum");
+
+        long after = registry.find("primes.compute").tag("algorithm", "segmented").timers()
+                .stream().mapToLong(Timer::count).sum();
+        assertEquals(1, after - before);
+        assertNotNull(registry.find("primes.compute.phase").tag("algorithm", "segmented").tag("phase", "sieve").timer());
+    }
+
+    @Test
+    void stats_rejectsUnknownMetricsAndBadModuli() {
+        for (String metrics : new String[] {"mean", "mod:1", "mod:x", "mod:1001", "mod:2,mod:3,mod:4,mod:5,mod:6,mod:7,mod:8,mod:9,mod:10"}) {
+            assertThrows(IllegalArgumentException.class, () -> service.stats(100, metrics), metrics);
+        }
+        assertThrows(PrimesService.UpperBoundExceededException.class, () -> service.stats(10_000_000_001L, "sum"));
+        assertThrows(IllegalArgumentException.class, () -> service.stats(-1, "sum"));
+    }
+
+    // -------- countPrimes --------
+
+    @Test
+    void nthPrime_knownValues() {
+        assertEquals(2, service.nthPrime(1));
+        assertEquals(541, service.nthPrime(100));
+        assertEquals(179_424_673, service.nthPrime(10_000_000));
+    }
+
+    @Test
+    void nthPrime_rejectsNonPositive() {
+        assertThrows(IllegalArgumentException.class, () -> service.nthPrime(0));
+    }
+
+    @Test
+    void batch_slicesEveryItemOutOfOneSieve() {
+        var slices = List.of(new PrimesService.Slice(0, 1_000), new PrimesService.Slice(0, 77_777),
+                new PrimesService.Slice(100, 200), new PrimesService.Slice(0, 10_000));
+        long before = registry.find("primes.compute").tag("algorithm", "simple").timers()
+                .stream().mapToLong(Timer::count).sum();
+
+        var results = service.batch(slices, "simple");
+
+        long after = registry.find("primes.compute").tag("algorithm", "simple").timers()
+                .stream().mapToLong(Timer::count).sum();
+        assertEquals(1, after - before, "one sieve for the whole batch");
+        assertEquals(168, results.get(0).size());
+        assertEquals(service.compute(77_777, "simple"), results.get(1));
+        assertEquals(PrimeArray.of(101, 103, 107, 109, 113, 127, 131, 137, 139, 149, 151, 157, 163, 167, 173,
+                179, 181, 191, 193, 197, 199), results.get(2));
+        assertEquals(1_229, results.get(3).size());
+    }
+
+    @Test
+    void batch_rejectsEmptyOversizedOrInvertedItems() {
+        assertThrows(IllegalArgumentException.class, () -> service.batch(List.of(), null));
+        assertThrows(IllegalArgumentException.class, () -> service.batch(List.of(new PrimesService.Slice(20, 10)), null));
+        assertThrows(PrimesService.UpperBoundExceededException.class,
+                () -> service.batch(List.of(new PrimesService.Slice(0, 1_000_001)), null));
+    }
+
+    @Test
+    void countPrimes_matchesSieveCount() {
+        assertEquals(service.compute(100_000, "simple").size(), service.countPrimes(100_000));
+    }
+
+    @Test
+    void countPrimes_acceptsBoundsFarAboveMaxAllowed() {
+        assertEquals(455_052_511L, service.countPrimes(10_000_000_000L));
+        assertThrows(PrimesService.UpperBoundExceededException.class, () -> service.countPrimes(Long.MAX_VALUE));
+    }
+
+    // -------- testPrimality --------
+
+    @Test
+    void testPrimality_returnsOneResultPerValue() {
+        boolean[] results = service.testPrimality(new long[] {2, 15, 1_000_000_007L, -3});
+        assertArrayEquals(new boolean[] {true, false, true, false}, results);
+    }
+
+    @Test
+    void testPrimality_rejectsEmptyAndOversizedBatches() {
+        assertThrows(IllegalArgumentException.class, () -> service.testPrimality(new long[0]));
+        assertThrows(PrimesService.UpperBoundExceededException.class, () -> service.testPrimality(new long[10_001]));
+    }
+
     @Test
     void compute_unknownAlgorithm_throwsHelpfulError() {
         var ex = assertThrows(IllegalArgumentException.class,
@@ -90,4 +325,105 @@ class PrimesServiceTest {
 
 
 
+
+    // -------- metrics --------
+
+    @Test
+    void compute_recordsLatencyAndPhasesTaggedByAlgorithm() {
+        service.compute(12_345, "segmented");
+
+        var timer = registry.find("primes.compute")
+                .tags("algorithm", "segmented", "cache", "miss", "bucket", "1e4")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+
+        for (String phase : List.of("base", "sieve", "assembly")) {
+            assertNotNull(registry.find("primes.compute.phase").tags("algorithm", "segmented", "phase", phase).timer(),
+                    "missing phase " + phase);
+        }
+        assertEquals(0.0, registry.get("primes.compute.in-flight").gauge().value());
+    }
+
+    @Test
+    void compute_tagsIndexHitsOnceTheBoundIsCovered() {
+        service.compute(5_000, "indexed");
+        service.compute(100, "indexed");
+
+        assertNotNull(registry.find("primes.compute").tags("algorithm", "indexed", "cache", "hit", "bucket", "1e2").timer());
+    }
+
+    @Test
+    void bucket_isTheDecadeOfMax() {
+        assertEquals("1e0", ComputeMetrics.bucket(0));
+        assertEquals("1e0", ComputeMetrics.bucket(9));
+        assertEquals("1e1", ComputeMetrics.bucket(10));
+        assertEquals("1e6", ComputeMetrics.bucket(1_000_000));
+        assertEquals("1e6", ComputeMetrics.bucket(9_999_999));
+    }
+
+    // -------- single flight --------
+
+    private List<Future<PrimeArray>> startConcurrentCalls(ExecutorService pool, int callers, int max) throws Exception {
+        List<Future<PrimeArray>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(pool.submit(() -> service.compute(max, "gated")));
+        }
+        var coalesced = registry.counter("primes.compute.coalesced", "algorithm", "gated");
+        double before = coalesced.count();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gated.runs.get() + coalesced.count() - before < callers && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return results;
+    }
+
+    @Test
+    void compute_concurrentIdenticalCalls_shareOneComputation() throws Exception {
+        gated.runs.set(0);
+        gated.failure = null;
+        gated.gate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            double coalescedBefore = registry.counter("primes.compute.coalesced", "algorithm", "gated").count();
+            var results = startConcurrentCalls(pool, 8, 777);
+            gated.gate.countDown();
+
+            for (var result : results) {
+                assertEquals(List.of(2, 3, 5, 7), result.get(10, TimeUnit.SECONDS).asList());
+            }
+            assertEquals(1, gated.runs.get());
+            assertEquals(7.0, registry.counter("primes.compute.coalesced", "algorithm", "gated").count() - coalescedBefore);
+
+            // the entry is gone once the leader finishes: the next call computes again
+            service.compute(777, "gated");
+            assertEquals(2, gated.runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void compute_failureIsSharedAndNotCached() throws Exception {
+        gated.runs.set(0);
+        gated.failure = new IllegalStateException("boom");
+        gated.gate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            var results = startConcurrentCalls(pool, 4, 778);
+            gated.gate.countDown();
+
+            for (var result : results) {
+                var ex = assertThrows(java.util.concurrent.ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, ex.getCause());
+            }
+            assertEquals(1, gated.runs.get());
+
+            gated.failure = null;
+            assertEquals(List.of(2, 3, 5, 7), service.compute(778, "gated").asList());
+            assertEquals(2, gated.runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }
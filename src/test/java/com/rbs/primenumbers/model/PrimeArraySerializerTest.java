@@ -0,0 +1,73 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.annotation.JsonRootName;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The primitive serializer must produce exactly what Jackson produced for the old List<Integer> field,
+ * in both JSON and XML, so existing clients see no difference.
+ */
+class PrimeArraySerializerTest {
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final XmlMapper xml = new XmlMapper();
+
+    @Getter
+    @AllArgsConstructor
+    @JsonRootName("Holder")
+    static class BoxedHolder {
+        private final int count;
+        private final List<Integer> primes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @JsonRootName("Holder")
+    static class PrimitiveHolder {
+        private final int count;
+        @JsonSerialize(using = PrimeArraySerializer.class)
+        private final PrimeArray primes;
+    }
+
+    @Test
+    void json_matchesBoxedList() throws Exception {
+        assertEquals(
+                json.writeValueAsString(new BoxedHolder(4, List.of(2, 3, 5, 7))),
+                json.writeValueAsString(new PrimitiveHolder(4, PrimeArray.of(2, 3, 5, 7))));
+    }
+
+    @Test
+    void xml_matchesBoxedList() throws Exception {
+        assertEquals(
+                xml.writeValueAsString(new BoxedHolder(4, List.of(2, 3, 5, 7))),
+                xml.writeValueAsString(new PrimitiveHolder(4, PrimeArray.of(2, 3, 5, 7))));
+    }
+
+    @Test
+    void emptyArray_matchesEmptyList_inBothFormats() throws Exception {
+        assertEquals(
+                json.writeValueAsString(new BoxedHolder(0, List.of())),
+                json.writeValueAsString(new PrimitiveHolder(0, PrimeArray.empty())));
+        assertEquals(
+                xml.writeValueAsString(new BoxedHolder(0, List.of())),
+                xml.writeValueAsString(new PrimitiveHolder(0, PrimeArray.empty())));
+    }
+
+    @Test
+    void slice_writesOnlyItsWindow() throws Exception {
+        var slice = PrimeArray.of(2, 3, 5, 7, 11).slice(1, 4);
+        assertEquals(
+                json.writeValueAsString(new BoxedHolder(3, List.of(3, 5, 7))),
+                json.writeValueAsString(new PrimitiveHolder(3, slice)));
+    }
+}
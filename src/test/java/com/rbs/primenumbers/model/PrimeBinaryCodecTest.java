@@ -0,0 +1,116 @@
+package com.rbs.primenumbers.model;
+
+import com.rbs.primenumbers.algorithm.OddBitmap;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.SimpleSieveAlgorithm;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Both binary formats must round-trip through the reference decoder for every bound, including edges. */
+class PrimeBinaryCodecTest {
+
+    private final SimpleSieveAlgorithm sieve = new SimpleSieveAlgorithm();
+
+    private OddBitmap bitmap(int max) {
+        return OddBitmap.of(sieve.computeArrayUpTo(max), max);
+    }
+
+    @Test
+    void deltaVarint_roundTrips() {
+        for (int max : new int[] {0, 1, 2, 3, 4, 127, 128, 129, 130, 131, 1_000, 100_003}) {
+            var decoded = PrimeBinaryCodec.decode(PrimeBinaryCodec.encodeDeltaVarint(bitmap(max)));
+            assertEquals(max, decoded.max());
+            assertArrayEquals(sieve.computeArrayUpTo(max).toArray(), decoded.primes(), "max=" + max);
+        }
+    }
+
+    @Test
+    void bitmap_roundTrips() {
+        for (int max : new int[] {0, 1, 2, 3, 4, 15, 16, 17, 127, 128, 129, 130, 131, 1_000, 100_003}) {
+            var decoded = PrimeBinaryCodec.decode(PrimeBinaryCodec.encodeBitmap(bitmap(max)));
+            assertEquals(max, decoded.max());
+            assertArrayEquals(sieve.computeArrayUpTo(max).toArray(), decoded.primes(), "max=" + max);
+        }
+    }
+
+    @Test
+    void header_carriesMagicVersionMaxAndCount() {
+        ByteBuffer header = ByteBuffer.wrap(PrimeBinaryCodec.encodeBitmap(bitmap(100)));
+        assertEquals(PrimeBinaryCodec.MAGIC_BITMAP, header.getInt());
+        assertEquals(PrimeBinaryCodec.VERSION, header.get());
+        assertEquals(0, header.get());
+        header.position(8);
+        assertEquals(100L, header.getLong());
+        assertEquals(25L, header.getLong());
+    }
+
+    @Test
+    void bitmap_ignoresSharedBitsAboveMax() {
+        // words shared with a larger sieve: primes up to 200, but only max=100 is meaningful
+        OddBitmap large = bitmap(200);
+        OddBitmap view = new OddBitmap(100, 25, large.words());
+
+        assertArrayEquals(PrimeBinaryCodec.encodeBitmap(bitmap(100)), PrimeBinaryCodec.encodeBitmap(view));
+        assertArrayEquals(PrimeBinaryCodec.encodeDeltaVarint(bitmap(100)), PrimeBinaryCodec.encodeDeltaVarint(view));
+    }
+
+    @Test
+    void sizes_areAboutOneBytePerPrimeAndOneBitPerOddNumber() {
+        int max = 1_000_000;
+        PrimeArray primes = sieve.computeArrayUpTo(max);
+        assertTrue(PrimeBinaryCodec.encodeDeltaVarint(bitmap(max)).length < primes.size() * 11 / 10 + PrimeBinaryCodec.HEADER_BYTES);
+        assertEquals(PrimeBinaryCodec.HEADER_BYTES + max / 16, PrimeBinaryCodec.encodeBitmap(bitmap(max)).length);
+    }
+
+    @Test
+    void deltaVarint_fromPrimeSlices_matchesTheBitmapEncoding() {
+        PrimeArray primes = sieve.computeArrayUpTo(10_000);
+        for (int max : new int[] {0, 1, 2, 3, 1_000, 10_000}) {
+            assertArrayEquals(PrimeBinaryCodec.encodeDeltaVarint(bitmap(max)),
+                    PrimeBinaryCodec.encodeDeltaVarint(primes.upTo(max), max), "max=" + max);
+        }
+    }
+
+    @Test
+    void batch_roundTripsItemsInOrder() {
+        PrimeArray primes = sieve.computeArrayUpTo(10_000);
+        byte[] body = PrimeBinaryCodec.encodeBatch(new long[]{0, 9_000, 0}, List.of(
+                PrimeBinaryCodec.encodeDeltaVarint(primes.upTo(100), 100),
+                PrimeBinaryCodec.encodeDeltaVarint(primes.between(9_000, 10_000), 10_000),
+                PrimeBinaryCodec.encodeDeltaVarint(primes.upTo(1), 1)));
+
+        var items = PrimeBinaryCodec.decodeBatch(body);
+        assertEquals(3, items.size());
+        assertEquals(0, items.get(0).from());
+        assertArrayEquals(primes.upTo(100).toArray(), items.get(0).primes());
+        assertEquals(9_000, items.get(1).from());
+        assertEquals(10_000, items.get(1).max());
+        assertArrayEquals(primes.between(9_000, 10_000).toArray(), items.get(1).primes());
+        assertEquals(0, items.get(2).count());
+
+        byte[] truncated = java.util.Arrays.copyOf(body, body.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.decodeBatch(truncated));
+
+        byte[] versionOne = body.clone();
+        versionOne[4] = 1;
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.decodeBatch(versionOne));
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.encodeBatch(new long[]{0}, List.of()));
+    }
+
+    @Test
+    void decode_rejectsMalformedBodies() {
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.decode(new byte[10]));
+
+        byte[] unknownMagic = PrimeBinaryCodec.encodeBitmap(bitmap(10));
+        unknownMagic[3] = 'X';
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.decode(unknownMagic));
+
+        byte[] encoded = PrimeBinaryCodec.encodeDeltaVarint(bitmap(1_000));
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length - 3);
+        assertThrows(IllegalArgumentException.class, () -> PrimeBinaryCodec.decode(truncated));
+    }
+}
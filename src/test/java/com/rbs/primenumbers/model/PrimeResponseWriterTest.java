@@ -0,0 +1,86 @@
+package com.rbs.primenumbers.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rbs.primenumbers.algorithm.PrimeArray;
+import com.rbs.primenumbers.algorithm.WheelSieveAlgorithm;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The hand-written writer must match, byte for byte, what Spring MVC's Jackson converters write
+ * with the application's mapper configuration.
+ */
+@SpringBootTest(classes = JacksonAutoConfiguration.class)
+class PrimeResponseWriterTest {
+
+    @Autowired
+    private ObjectMapper json;
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder builder;
+
+    private static final Instant AT = Instant.parse("2025-10-24T13:59:12.123456789Z");
+
+    private void assertSameAsJackson(PrimeResponse response) throws IOException {
+        var out = new ByteArrayOutputStream();
+        PrimeResponseWriter.writeJson(response, out);
+        assertEquals(json.writeValueAsString(response), out.toString(StandardCharsets.UTF_8));
+
+        out.reset();
+        PrimeResponseWriter.writeXml(response, out);
+        assertEquals(builder.createXmlMapper(true).build().writeValueAsString(response), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void smallAndEmptyBodies() throws IOException {
+        assertSameAsJackson(new PrimeResponse(1, 0, PrimeArray.empty(), AT, 0));
+        assertSameAsJackson(new PrimeResponse(2, 1, PrimeArray.of(2), Instant.parse("2025-01-01T00:00:00Z"), 3));
+        assertSameAsJackson(new PrimeResponse(100, 25, new WheelSieveAlgorithm().computeArrayUpTo(100), AT, 12));
+    }
+
+    @Test
+    void everyDigitCount() throws IOException {
+        int[] values = IntStream.rangeClosed(0, 9)
+                .flatMap(d -> IntStream.of((int) Math.pow(10, d) - 1, (int) Math.pow(10, d)))
+                .filter(v -> v > 0)
+                .distinct()
+                .sorted()
+                .toArray();
+        int[] withMax = IntStream.concat(IntStream.of(values), IntStream.of(Integer.MAX_VALUE)).toArray();
+        assertSameAsJackson(new PrimeResponse(Integer.MAX_VALUE, withMax.length, PrimeArray.of(withMax), AT, Long.MAX_VALUE));
+    }
+
+    @Test
+    void largeBodies_spanManyChunks() throws IOException {
+        PrimeArray primes = new WheelSieveAlgorithm().computeArrayUpTo(2_000_000);
+        assertSameAsJackson(new PrimeResponse(2_000_000, primes.size(), primes, AT, 42));
+        // a view into a larger array starts at a non-zero offset
+        PrimeArray slice = primes.between(1_000_000, 1_500_000);
+        assertSameAsJackson(new PrimeResponse(1_500_000, slice.size(), slice, AT, 1));
+    }
+
+    @Test
+    void missingFields() throws IOException {
+        assertSameAsJackson(new PrimeResponse(10, 0, null, null, 0));
+    }
+
+    @Test
+    void writeDigits_matchesToString() {
+        byte[] buf = new byte[10];
+        for (int v : new int[] {0, 7, 10, 99, 100, 12345, 1_000_000_007, Integer.MAX_VALUE}) {
+            int end = PrimeResponseWriter.writeDigits(v, buf, 0);
+            assertEquals(Integer.toString(v), new String(buf, 0, end, StandardCharsets.US_ASCII));
+        }
+    }
+}